@@ -0,0 +1,43 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.archive")
+public class ArchiveConfig {
+
+    /**
+     * Run the scheduled archival and let paged reads fall through to chats_archive
+     */
+    private boolean enabled = true;
+
+    /**
+     * Chats older than this many days are moved from chats to chats_archive
+     */
+    private int olderThanDays = 365;
+
+    /**
+     * When the archival job runs (Spring cron expression); it moves rows in chat.jobs chunks
+     */
+    private String cron = "0 30 3 * * *";
+
+    /**
+     * Only one node runs the archival at a time; a run whose checkpoint has not been saved for this
+     * long is taken to belong to a node that died, and another node may take it over
+     */
+    private long takeoverAfterMs = 600000;
+
+    /**
+     * How long a node reuses the archive boundary (MAX(id) of chats_archive) before reading it again;
+     * rows another node archived meanwhile are not found by reads for up to this long
+     */
+    private long boundaryRefreshMs = 5000;
+
+    /**
+     * User pairs remembered as having nothing archived, so their short history pages skip chats_archive
+     */
+    private long pairCacheMaxSize = 100000;
+}
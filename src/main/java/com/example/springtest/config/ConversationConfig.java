@@ -0,0 +1,22 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.conversations")
+public class ConversationConfig {
+
+    /**
+     * Maximum number of user pair -> conversation id entries kept in memory
+     */
+    private long cacheMaxSize = 100_000;
+
+    /**
+     * How often each node re-checks whether every chat has a conversation_id, so history reads switch
+     * over on all nodes, not just the one that ran the backfill
+     */
+    private long readsRefreshMs = 60_000;
+}
@@ -0,0 +1,25 @@
+package com.example.springtest.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Thread pools for batch encryption and decryption.
+ * Background jobs get their own, smaller pool so a key rotation or backfill
+ * cannot occupy the threads that user reads decrypt on.
+ */
+@Configuration
+public class CryptoPoolConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool cryptoForkJoinPool(EncryptionConfig encryptionConfig) {
+        return new ForkJoinPool(Math.max(1, encryptionConfig.getParallelism()));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool jobCryptoForkJoinPool(EncryptionConfig encryptionConfig) {
+        return new ForkJoinPool(Math.max(1, encryptionConfig.getJobParallelism()));
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "chat.encryption")
@@ -14,4 +17,57 @@ public class EncryptionConfig {
      * IMPORTANT: Change this in production!
      */
     private String secretKey = "MySecretKey12345678901234567890SecureKey!@#";
+
+    /**
+     * Keyring for the envelope format: key id (1-15) -> secret
+     * Key id 0 is always secretKey, which is also the key of legacy Base64 messages.
+     * Keep retired keys here until the key rotation job has moved every row off them.
+     */
+    private Map<Integer, String> keys = new HashMap<>();
+
+    /**
+     * Key id used for new writes and as the target of the key rotation job
+     */
+    private int activeKeyId = 0;
+
+    /**
+     * Write new messages as binary AES-GCM envelopes (chats.message_data)
+     * Disable while nodes that only read the legacy Base64 format are still running
+     */
+    private boolean envelopeFormat = true;
+
+    /**
+     * Lists with at least this many messages are decrypted in parallel; smaller ones stay on the request thread
+     */
+    private int parallelThreshold = 64;
+
+    /**
+     * Maximum number of threads used for batch decryption
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of threads background jobs (key rotation, encryption, backfills) use for batch crypto
+     * Separate from parallelism so a running job cannot starve user reads
+     */
+    private int jobParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+
+    /**
+     * Compress-then-encrypt for long messages (envelope format only)
+     */
+    private Compression compression = new Compression();
+
+    @Data
+    public static class Compression {
+
+        /**
+         * Deflate messages (with a preset chat dictionary) before encrypting them
+         */
+        private boolean enabled = true;
+
+        /**
+         * Only messages of at least this many UTF-8 bytes are compressed (see CompressionBenchmark)
+         */
+        private int thresholdBytes = 128;
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.ids")
+public class IdConfig {
+
+    /**
+     * Node number embedded in new chat ids (0 - 63); -1 leases a free one from id_nodes on startup
+     */
+    private int nodeId = -1;
+
+    /**
+     * How long a leased node number stays reserved without renewal; renewed every third of it
+     */
+    private long leaseMs = 60000;
+}
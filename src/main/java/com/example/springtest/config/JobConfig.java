@@ -0,0 +1,21 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.jobs")
+public class JobConfig {
+
+    /**
+     * Rows read, processed and committed per transaction by background data jobs
+     */
+    private int chunkSize = 500;
+
+    /**
+     * Throttle for background data jobs in rows per second (0 = unthrottled)
+     */
+    private int maxRowsPerSecond = 2000;
+}
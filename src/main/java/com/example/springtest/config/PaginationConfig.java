@@ -0,0 +1,38 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.pagination")
+public class PaginationConfig {
+
+    /**
+     * Page size used when a request does not ask for one
+     */
+    private int defaultPageSize = 50;
+
+    /**
+     * Upper bound for any requested page size
+     */
+    private int maxPageSize = 200;
+
+    /**
+     * Keep the unpaged list endpoints (chats, sent, received, between, users, with-chats) returning
+     * everything for clients that have not moved to the paged endpoints yet.
+     * When disabled they answer 400 with the paged endpoint to use (PagedEndpointRequiredException).
+     */
+    private boolean legacyFullList = true;
+
+    /**
+     * Clamp a requested page size to [1, maxPageSize], using the default when none is given
+     */
+    public int resolvePageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.springtest.config;
 
 import com.pusher.rest.Pusher;
 import lombok.Getter;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -18,11 +19,20 @@ public class PusherConfig {
     private String secret;
     private String cluster;
 
+    /**
+     * The default client keeps only 2 connections per host; size the pool to the realtime workers.
+     * Every call is bounded by chat.realtime.call-timeout-ms so a degraded Pusher cannot hold a worker for long.
+     */
     @Bean
-    public Pusher pusher() {
+    public Pusher pusher(RealtimeConfig realtimeConfig) {
         Pusher pusher = new Pusher(appId, key, secret);
         pusher.setCluster(cluster);
         pusher.setEncrypted(true);
+        pusher.setRequestTimeout(realtimeConfig.getCallTimeoutMs());
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(Math.max(2, realtimeConfig.getWorkers()));
+        connections.setDefaultMaxPerRoute(Math.max(2, realtimeConfig.getWorkers()));
+        pusher.configureHttpClient(Pusher.defaultHttpClientBuilder().setConnectionManager(connections));
         return pusher;
     }
 }
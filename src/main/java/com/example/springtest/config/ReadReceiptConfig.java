@@ -0,0 +1,16 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.read-receipts")
+public class ReadReceiptConfig {
+
+    /**
+     * How often coalesced read acknowledgements are written and announced, in milliseconds
+     */
+    private long flushIntervalMs = 250;
+}
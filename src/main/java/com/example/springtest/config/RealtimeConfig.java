@@ -0,0 +1,228 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.realtime")
+public class RealtimeConfig {
+
+    /**
+     * Where realtime events go: the hosted Pusher service, the in-process SSE gateway, both, or an
+     * in-memory fake for load tests
+     */
+    private Publisher publisher = Publisher.PUSHER;
+
+    /**
+     * Deadline of one publisher call: Pusher's connection-pool wait, connect and read each time out after it
+     */
+    private int callTimeoutMs = 2000;
+
+    /**
+     * Events waiting for delivery; when full, overflow-policy decides what happens to new ones
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * Concurrent deliveries (virtual threads); also the size of the Pusher HTTP connection pool
+     */
+    private int workers = 16;
+
+    /**
+     * What a full queue does with a new event
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    /**
+     * BLOCK: longest a request thread waits for room before the event is dropped
+     */
+    private long blockTimeoutMs = 50;
+
+    /**
+     * Delivery attempts per event, including the first one (only network and 5xx errors are retried)
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * Retry backoff: random delay up to base * 2^(attempt - 1), capped at retry-max-delay-ms
+     */
+    private long retryBaseDelayMs = 200;
+
+    private long retryMaxDelayMs = 10000;
+
+    /**
+     * On shutdown, how long queued and retrying events may take to go out
+     */
+    private long shutdownTimeoutMs = 10000;
+
+    /**
+     * Micro-batching of outgoing events into Pusher batch triggers
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * Relay of the transactional outbox (realtime_outbox) into the delivery queue
+     */
+    private Outbox outbox = new Outbox();
+
+    /**
+     * In-process SSE gateway (publisher IN_PROCESS or BOTH)
+     */
+    private Gateway gateway = new Gateway();
+
+    /**
+     * Circuit breaker around the remote publisher (Pusher, or the fake standing in for it)
+     */
+    private Breaker breaker = new Breaker();
+
+    /**
+     * In-memory publisher with injected latency and errors (publisher FAKE)
+     */
+    private Fake fake = new Fake();
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Events per Pusher request (Pusher accepts at most 10); 1 disables batching
+         */
+        private int maxSize = 10;
+
+        /**
+         * How long a worker holding one event waits for more before sending, in milliseconds
+         */
+        private long maxWaitMs = 5;
+    }
+
+    @Data
+    public static class Outbox {
+
+        /**
+         * Run the relay on this node; every node may run it, rows are claimed with SKIP LOCKED
+         */
+        private boolean relayEnabled = true;
+
+        /**
+         * How often the relay looks for due rows when no local write woke it up
+         */
+        private long pollIntervalMs = 500;
+
+        /**
+         * Rows claimed per transaction
+         */
+        private int batchSize = 100;
+
+        /**
+         * How long claimed rows stay reserved for this node; after that another node may publish them
+         */
+        private long leaseMs = 30000;
+
+        /**
+         * Publishing budget of this node's relay; 0 = unlimited
+         */
+        private int maxEventsPerSecond = 1000;
+
+        /**
+         * Publish attempts per row before it is marked failed and kept for inspection
+         */
+        private int maxAttempts = 10;
+
+        /**
+         * How long failed rows are kept for inspection before they are deleted
+         */
+        private int failedRetentionHours = 168;
+    }
+
+    @Data
+    public static class Gateway {
+
+        /**
+         * Events buffered per connection; a client that falls this far behind is disconnected
+         */
+        private int sendQueueCapacity = 256;
+
+        /**
+         * Comment frames keep idle connections open through proxies and detect dead clients
+         */
+        private long heartbeatIntervalMs = 15000;
+
+        /**
+         * Connections are closed after this long; EventSource clients reconnect on their own
+         */
+        private long connectionTimeoutMs = 1800000;
+    }
+
+    @Data
+    public static class Breaker {
+
+        /**
+         * Disable to call the publisher whatever its health
+         */
+        private boolean enabled = true;
+
+        /**
+         * Most recent calls the failure rate is computed over
+         */
+        private int windowSize = 20;
+
+        /**
+         * Calls needed in the window before the breaker may open
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * Percentage of failed calls in the window that opens the breaker; timeouts, network errors
+         * and 5xx responses count as failures, 4xx rejections do not
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * How long an open breaker fails calls immediately before letting probes through
+         */
+        private long openDurationMs = 10000;
+
+        /**
+         * Trial calls let through while half-open; all must succeed to close the breaker, one failure reopens it
+         */
+        private int halfOpenProbes = 3;
+    }
+
+    @Data
+    public static class Fake {
+
+        /**
+         * Simulated duration of each call; above call-timeout-ms the call times out
+         */
+        private long latencyMs = 20;
+
+        /**
+         * Fraction of calls (0.0 - 1.0) that fail
+         */
+        private double errorRate = 0.0;
+
+        /**
+         * Injected failures behave like 5xx responses (retried, counted by the breaker) or like 4xx rejections
+         */
+        private boolean errorRetryable = true;
+    }
+
+    public enum Publisher {
+        PUSHER,
+        IN_PROCESS,
+        BOTH,
+        FAKE
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Reject the event immediately; clients catch up from the inbox
+         */
+        DROP,
+        /**
+         * Wait up to block-timeout-ms for room, then drop
+         */
+        BLOCK
+    }
+}
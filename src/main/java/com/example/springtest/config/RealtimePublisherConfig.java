@@ -0,0 +1,51 @@
+package com.example.springtest.config;
+
+import com.example.springtest.realtime.CircuitBreaker;
+import com.example.springtest.realtime.CircuitBreakingPublisher;
+import com.example.springtest.realtime.CompositeRealtimePublisher;
+import com.example.springtest.realtime.FakeRealtimePublisher;
+import com.example.springtest.realtime.PusherRealtimePublisher;
+import com.example.springtest.realtime.RealtimeGateway;
+import com.example.springtest.realtime.RealtimePublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.List;
+
+/**
+ * Selects the publisher behind the delivery queue from chat.realtime.publisher.
+ * Remote publishers (Pusher, and the fake standing in for it) are wrapped in a circuit breaker;
+ * the in-process gateway never blocks, so it is not.
+ */
+@Slf4j
+@Configuration
+public class RealtimePublisherConfig {
+
+    @Bean
+    @Primary
+    public RealtimePublisher realtimePublisher(RealtimeConfig realtimeConfig,
+                                               PusherRealtimePublisher pusherPublisher,
+                                               RealtimeGateway realtimeGateway,
+                                               MeterRegistry meterRegistry) {
+        log.info("Realtime events are published via {}", realtimeConfig.getPublisher());
+        return switch (realtimeConfig.getPublisher()) {
+            case PUSHER -> guarded("pusher", pusherPublisher, realtimeConfig, meterRegistry);
+            case IN_PROCESS -> realtimeGateway;
+            case BOTH -> new CompositeRealtimePublisher(List.of(realtimeGateway,
+                    guarded("pusher", pusherPublisher, realtimeConfig, meterRegistry)));
+            case FAKE -> guarded("fake", new FakeRealtimePublisher(realtimeConfig), realtimeConfig, meterRegistry);
+        };
+    }
+
+    private static RealtimePublisher guarded(String name, RealtimePublisher publisher,
+                                             RealtimeConfig realtimeConfig, MeterRegistry meterRegistry) {
+        if (!realtimeConfig.getBreaker().isEnabled()) {
+            return publisher;
+        }
+        return new CircuitBreakingPublisher(name,
+                new CircuitBreaker(name, realtimeConfig.getBreaker(), meterRegistry), publisher);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.datasource.replica")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * JDBC URL of the read replica; when empty every transaction uses spring.datasource
+     */
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private String driverClassName;
+
+    /**
+     * Connections in the replica pool
+     */
+    private int maximumPoolSize = 10;
+
+    /**
+     * After a user writes, their read-only transactions stay on the primary this long,
+     * so they do not read their own write from a replica that has not applied it yet
+     */
+    private long primaryStickinessMs = 2000;
+}
@@ -0,0 +1,12 @@
+package com.example.springtest.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background tasks (e.g. the read receipt flush)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,22 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.search")
+public class SearchConfig {
+
+    /**
+     * HMAC key of the search blind index; when empty it is derived from chat.encryption.secret-key.
+     * Changing it makes existing tokens unsearchable until the search index backfill has run again.
+     */
+    private String indexKey;
+
+    /**
+     * Distinct tokens indexed per message; longer messages are only searchable by their first words
+     */
+    private int maxTokensPerMessage = 256;
+}
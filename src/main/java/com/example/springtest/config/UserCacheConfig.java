@@ -0,0 +1,22 @@
+package com.example.springtest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.user-cache")
+public class UserCacheConfig {
+
+    /**
+     * Maximum number of uuid -> user summary entries kept in memory
+     */
+    private long maxSize = 100_000;
+
+    /**
+     * Entries are reloaded after this many seconds, which bounds how long other nodes
+     * can serve a renamed or deleted user (the node that made the change evicts at once)
+     */
+    private long ttlSeconds = 300;
+}
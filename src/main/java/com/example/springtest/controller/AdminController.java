@@ -1,5 +1,6 @@
 package com.example.springtest.controller;
 
+import com.example.springtest.dto.JobProgressResponse;
 import com.example.springtest.service.DataMigrationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,7 +19,7 @@ public class AdminController {
     private final DataMigrationService dataMigrationService;
 
     /**
-     * Encrypt all existing unencrypted chat messages
+     * Start encrypting all existing unencrypted chat messages in the background
      * POST /api/v1/admin/encrypt-existing-chats
      */
     @PostMapping("/encrypt-existing-chats")
@@ -38,21 +39,19 @@ public class AdminController {
                 return ResponseEntity.ok(response);
             }
             
-            int encryptedCount = dataMigrationService.encryptExistingMessages();
+            boolean started = dataMigrationService.startEncryptExistingMessages();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("message", "Encryption completed");
-            response.put("encryptedCount", encryptedCount);
+            response.put("message", started ? "Encryption started" : "Encryption is already running");
             response.put("totalUnencrypted", unencryptedCount);
-            response.put("failedCount", unencryptedCount - encryptedCount);
+            response.put("progress", dataMigrationService.getEncryptionProgress());
+            response.put("progressUrl", "/api/v1/admin/encrypt-existing-chats/progress");
             
-            log.info("Encryption completed: {} out of {} messages encrypted", encryptedCount, unencryptedCount);
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
             
         } catch (Exception e) {
-            log.error("Error during encryption migration", e);
+            log.error("Error starting encryption migration", e);
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
             response.put("message", "Error during encryption: " + e.getMessage());
@@ -60,6 +59,179 @@ public class AdminController {
         }
     }
 
+    /**
+     * Get progress of the background encryption job
+     * GET /api/v1/admin/encrypt-existing-chats/progress
+     */
+    @GetMapping("/encrypt-existing-chats/progress")
+    public ResponseEntity<JobProgressResponse> getEncryptionProgress() {
+        log.info("GET /api/v1/admin/encrypt-existing-chats/progress - Checking encryption job progress");
+        return ResponseEntity.ok(dataMigrationService.getEncryptionProgress());
+    }
+
+    /**
+     * Start moving stored messages onto the active encryption key
+     * POST /api/v1/admin/key-rotation
+     */
+    @PostMapping("/key-rotation")
+    public ResponseEntity<Map<String, Object>> startKeyRotation() {
+        log.info("POST /api/v1/admin/key-rotation - Starting key rotation");
+
+        try {
+            boolean started = dataMigrationService.startKeyRotation();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", started ? "Key rotation started" : "Key rotation is already running");
+            response.put("progress", dataMigrationService.getKeyRotationProgress());
+            response.put("progressUrl", "/api/v1/admin/key-rotation");
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            log.error("Error starting key rotation", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error during key rotation: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Get key rotation progress: throughput and remaining rows
+     * GET /api/v1/admin/key-rotation
+     */
+    @GetMapping("/key-rotation")
+    public ResponseEntity<JobProgressResponse> getKeyRotationProgress() {
+        log.info("GET /api/v1/admin/key-rotation - Checking key rotation progress");
+
+        JobProgressResponse progress = dataMigrationService.getKeyRotationProgress();
+        if (progress.getRemainingRows() == null) {
+            progress.setRemainingRows(dataMigrationService.countMessagesPendingRotation());
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Start assigning existing messages to their conversation
+     * POST /api/v1/admin/conversation-backfill
+     */
+    @PostMapping("/conversation-backfill")
+    public ResponseEntity<Map<String, Object>> startConversationBackfill() {
+        log.info("POST /api/v1/admin/conversation-backfill - Starting conversation backfill");
+
+        try {
+            boolean started = dataMigrationService.startConversationBackfill();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", started ? "Conversation backfill started" : "Conversation backfill is already running");
+            response.put("progress", dataMigrationService.getConversationBackfillProgress());
+            response.put("progressUrl", "/api/v1/admin/conversation-backfill");
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            log.error("Error starting conversation backfill", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error during conversation backfill: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Get conversation backfill progress
+     * GET /api/v1/admin/conversation-backfill
+     */
+    @GetMapping("/conversation-backfill")
+    public ResponseEntity<JobProgressResponse> getConversationBackfillProgress() {
+        log.info("GET /api/v1/admin/conversation-backfill - Checking conversation backfill progress");
+
+        JobProgressResponse progress = dataMigrationService.getConversationBackfillProgress();
+        if (progress.getRemainingRows() == null) {
+            progress.setRemainingRows(dataMigrationService.countMessagesPendingConversationBackfill());
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Start indexing existing messages for search
+     * POST /api/v1/admin/search-index-backfill
+     */
+    @PostMapping("/search-index-backfill")
+    public ResponseEntity<Map<String, Object>> startSearchIndexBackfill() {
+        log.info("POST /api/v1/admin/search-index-backfill - Starting search index backfill");
+
+        try {
+            boolean started = dataMigrationService.startSearchIndexBackfill();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", started ? "Search index backfill started" : "Search index backfill is already running");
+            response.put("progress", dataMigrationService.getSearchIndexBackfillProgress());
+            response.put("progressUrl", "/api/v1/admin/search-index-backfill");
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            log.error("Error starting search index backfill", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error during search index backfill: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Get search index backfill progress
+     * GET /api/v1/admin/search-index-backfill
+     */
+    @GetMapping("/search-index-backfill")
+    public ResponseEntity<JobProgressResponse> getSearchIndexBackfillProgress() {
+        log.info("GET /api/v1/admin/search-index-backfill - Checking search index backfill progress");
+        return ResponseEntity.ok(dataMigrationService.getSearchIndexBackfillProgress());
+    }
+
+    /**
+     * Start archiving old chats now (it also runs on chat.archive.cron)
+     * POST /api/v1/admin/archival
+     */
+    @PostMapping("/archival")
+    public ResponseEntity<Map<String, Object>> startArchival() {
+        log.info("POST /api/v1/admin/archival - Starting chat archival");
+
+        try {
+            boolean started = dataMigrationService.startArchival();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", started ? "Chat archival started" : "Chat archival is already running");
+            response.put("progress", dataMigrationService.getArchivalProgress());
+            response.put("progressUrl", "/api/v1/admin/archival");
+            return ResponseEntity.accepted().body(response);
+
+        } catch (Exception e) {
+            log.error("Error starting chat archival", e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Error during chat archival: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Get chat archival progress
+     * GET /api/v1/admin/archival
+     */
+    @GetMapping("/archival")
+    public ResponseEntity<JobProgressResponse> getArchivalProgress() {
+        log.info("GET /api/v1/admin/archival - Checking chat archival progress");
+
+        JobProgressResponse progress = dataMigrationService.getArchivalProgress();
+        if (progress.getRemainingRows() == null) {
+            progress.setRemainingRows(dataMigrationService.countArchivableMessages());
+        }
+        return ResponseEntity.ok(progress);
+    }
+
     /**
      * Get count of unencrypted messages
      * GET /api/v1/admin/unencrypted-count
@@ -76,4 +248,19 @@ public class AdminController {
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Realtime outbox backlog: rows waiting to be published and rows that gave up
+     * GET /api/v1/admin/realtime-outbox
+     */
+    @GetMapping("/realtime-outbox")
+    public ResponseEntity<Map<String, Object>> getRealtimeOutbox() {
+        log.info("GET /api/v1/admin/realtime-outbox - Checking realtime outbox backlog");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("pending", dataMigrationService.countPendingRealtimeEvents());
+        response.put("failed", dataMigrationService.countFailedRealtimeEvents());
+
+        return ResponseEntity.ok(response);
+    }
 }
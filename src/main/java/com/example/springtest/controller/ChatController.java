@@ -4,14 +4,21 @@ import com.example.springtest.dto.ChatRequest;
 import com.example.springtest.dto.ChatResponse;
 import com.example.springtest.dto.ChatFilterRequest;
 import com.example.springtest.dto.ChatBetweenUsersRequest;
+import com.example.springtest.dto.ChatExportRequest;
 import com.example.springtest.dto.ChatUpdateRequest;
+import com.example.springtest.dto.CursorPageResponse;
+import com.example.springtest.dto.ReadReceiptRequest;
+import com.example.springtest.exception.ArchivedChatException;
 import com.example.springtest.service.ChatService;
 import com.example.springtest.service.PusherService;
+import com.example.springtest.service.ReadReceiptService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +31,9 @@ public class ChatController {
 
     private final ChatService chatService;
     private final PusherService pusherService;
+    private final ReadReceiptService readReceiptService;
+
+    private static final String NDJSON = "application/x-ndjson";
 
     /**
      * Create a new chat message
@@ -37,27 +47,7 @@ public class ChatController {
         // Save message to database
         ChatResponse response = chatService.createChat(chatRequest);
 
-        // Trigger Pusher event to recipient only
-        try {
-            Map<String, Object> messageData = new HashMap<>();
-            messageData.put("id", response.getId());
-            messageData.put("chatFromUuid", response.getChatFrom().getUuid());
-            messageData.put("chatToUuid", response.getChatTo().getUuid());
-            messageData.put("message", response.getMessage());
-            messageData.put("senderName", response.getChatFrom().getName());
-            // Convert LocalDateTime to ISO string to avoid Gson reflection issues
-            messageData.put("createdAt", response.getCreatedAt() != null ? response.getCreatedAt().toString() : null);
-
-            // Send to recipient's channel only (toUUID)
-            pusherService.sendMessageToUser(chatRequest.getChatToUuid(), messageData);
-
-            log.info("Pusher event triggered to recipient {} for message ID: {}",
-                     chatRequest.getChatToUuid(), response.getId());
-        } catch (Exception e) {
-            log.error("Failed to trigger Pusher event, but message was saved", e);
-            // Don't fail the response - message is already saved
-        }
-
+        // The new-message event was written to the realtime outbox in the same transaction
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
@@ -104,6 +94,46 @@ public class ChatController {
         return ResponseEntity.ok(chats);
     }
 
+    /**
+     * Get one page of all chats in id order
+     * GET /api/v1/chats/page?limit=50&after={nextCursor}
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageResponse<ChatResponse>> getChatPage(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long after) {
+        log.info("GET /api/v1/chats/page - Retrieve chat page after id: {}", after);
+        CursorPageResponse<ChatResponse> page = chatService.getChatPage(limit, after);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Export chats as NDJSON, streamed with constant memory
+     * GET /api/v1/chats/export?senderUuid=&receiverUuid=&from=2024-01-01T00:00:00&to=2024-02-01T00:00:00
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportChats(@ModelAttribute ChatExportRequest request) {
+        log.info("GET /api/v1/chats/export - Export chats with filters: {}", request);
+        ChatService.ExportQuery query = chatService.prepareExport(request);
+        StreamingResponseBody body = out -> chatService.exportChats(query, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    /**
+     * Mark the conversation with a peer as read up to a chat id
+     * POST /api/v1/chats/read
+     * Acks are coalesced and written in the background; the peer gets a "messages-read" event
+     */
+    @PostMapping("/read")
+    public ResponseEntity<Void> markRead(@RequestBody ReadReceiptRequest request) {
+        log.debug("POST /api/v1/chats/read - {} read chats from {} up to {}",
+                request.getReaderUuid(), request.getPeerUuid(), request.getLastReadChatId());
+        readReceiptService.acknowledge(request);
+        return ResponseEntity.accepted().build();
+    }
+
     /**
      * Get chat by ID
      * GET /api/v1/chats/{id}
@@ -126,6 +156,18 @@ public class ChatController {
         return ResponseEntity.ok(chats);
     }
 
+    /**
+     * Get one page of chats sent by a user in id order
+     * POST /api/v1/chats/sent/page
+     */
+    @PostMapping("/sent/page")
+    public ResponseEntity<CursorPageResponse<ChatResponse>> getSentChatPage(@RequestBody ChatFilterRequest filterRequest) {
+        log.info("POST /api/v1/chats/sent/page - Retrieve sent chat page for user: {}", filterRequest.getUserUuid());
+        CursorPageResponse<ChatResponse> page = chatService.getSentChatPage(
+                filterRequest.getUserUuid(), filterRequest.getLimit(), filterRequest.getAfter());
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * Get all chats received by a user
      * POST /api/v1/chats/received
@@ -137,6 +179,18 @@ public class ChatController {
         return ResponseEntity.ok(chats);
     }
 
+    /**
+     * Get one page of chats received by a user in id order
+     * POST /api/v1/chats/received/page
+     */
+    @PostMapping("/received/page")
+    public ResponseEntity<CursorPageResponse<ChatResponse>> getReceivedChatPage(@RequestBody ChatFilterRequest filterRequest) {
+        log.info("POST /api/v1/chats/received/page - Retrieve received chat page for user: {}", filterRequest.getUserUuid());
+        CursorPageResponse<ChatResponse> page = chatService.getReceivedChatPage(
+                filterRequest.getUserUuid(), filterRequest.getLimit(), filterRequest.getAfter());
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * Get all chats between two users
      * POST /api/v1/chats/between
@@ -149,6 +203,19 @@ public class ChatController {
         return ResponseEntity.ok(chats);
     }
 
+    /**
+     * Get one page of chats between two users (latest first, then older via cursor)
+     * POST /api/v1/chats/between/page
+     */
+    @PostMapping("/between/page")
+    public ResponseEntity<CursorPageResponse<ChatResponse>> getChatPageBetweenUsers(@RequestBody ChatBetweenUsersRequest request) {
+        log.info("POST /api/v1/chats/between/page - Retrieve chat page between users: {} and {}",
+            request.getChatFromUuid(), request.getChatToUuid());
+        CursorPageResponse<ChatResponse> page = chatService.getChatPageBetweenUsers(
+                request.getChatFromUuid(), request.getChatToUuid(), request.getLimit(), request.getCursor());
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * Update chat message
      * PUT /api/v1/chats/{id}
@@ -162,39 +229,7 @@ public class ChatController {
         ChatResponse response = chatService.updateChat(id,
                 new ChatRequest(updateRequest.getMessage(), null, null));
         
-        // Notify both users via Pusher about the update
-        try {
-            Map<String, Object> updateData = new HashMap<>();
-            updateData.put("id", response.getId());
-            updateData.put("messageId", response.getId());
-            updateData.put("message", response.getMessage());
-            updateData.put("action", "edit-message");
-            updateData.put("chatFromUuid", response.getChatFrom().getUuid());
-            updateData.put("chatToUuid", response.getChatTo().getUuid());
-            updateData.put("updatedAt", response.getUpdatedAt() != null ? response.getUpdatedAt().toString() : null);
-            
-            String recipientChannelName = "chat-" + response.getChatTo().getUuid();
-            
-            log.info("========== EDIT MESSAGE EVENT ==========");
-            log.info("Message ID: {}", response.getId());
-            log.info("Message Sender UUID: {}", response.getChatFrom().getUuid());
-            log.info("Message Recipient UUID (chatTo): {}", response.getChatTo().getUuid());
-            log.info("Sending to RECIPIENT channel ONLY: {}", recipientChannelName);
-            log.info("New Message Text: {}", response.getMessage());
-            log.info("Event Data: {}", updateData);
-            log.info("==========================================");
-            
-            // Notify recipient only
-            log.info("➡️ Triggering edit-message to RECIPIENT...");
-            pusherService.triggerEvent(recipientChannelName, "edit-message", updateData);
-            log.info("✅ Edit event delivered to RECIPIENT channel");
-            log.info("========== END EDIT MESSAGE EVENT ==========");
-            
-        } catch (Exception e) {
-            log.error("❌ Failed to send Pusher update event", e);
-            e.printStackTrace();
-        }
-        
+        // The edit-message event was written to the realtime outbox in the same transaction
         return ResponseEntity.ok(response);
     }
 
@@ -206,41 +241,13 @@ public class ChatController {
     public ResponseEntity<Void> deleteChat(@PathVariable Long id) {
         log.info("DELETE /api/v1/chats/{} - Delete chat", id);
 
-        // Get chat details before deleting for Pusher notification
         try {
-            ChatResponse chat = chatService.getChatById(id);
-
-            // Delete the message
+            // The delete-message event is written to the realtime outbox in the same transaction
             chatService.deleteChat(id);
 
-            // Notify both users via Pusher
-            try {
-                Map<String, Object> deleteData = new HashMap<>();
-                deleteData.put("id", id);
-                deleteData.put("messageId", id);
-                deleteData.put("action", "delete-message");
-                deleteData.put("chatFromUuid", chat.getChatFrom().getUuid());
-                deleteData.put("chatToUuid", chat.getChatTo().getUuid());
-                
-                String recipientChannelName = "chat-" + chat.getChatTo().getUuid();
-                
-                log.info("========== DELETE MESSAGE EVENT ==========");
-                log.info("Message ID: {}", id);
-                log.info("Message Sender UUID: {}", chat.getChatFrom().getUuid());
-                log.info("Message Recipient UUID (chatTo): {}", chat.getChatTo().getUuid());
-                log.info("Sending delete-message Pusher event to RECIPIENT channel ONLY: {}", recipientChannelName);
-                log.info("Event data: {}", deleteData);
-
-                // Notify recipient only
-                pusherService.triggerEvent(recipientChannelName, "delete-message", deleteData);
-                log.info("✓ Delete event sent to recipient: {}", chat.getChatTo().getUuid());
-                log.info("========== END DELETE MESSAGE EVENT ==========");
-            } catch (Exception e) {
-                log.error("❌ Failed to send Pusher delete event", e);
-                e.printStackTrace();
-            }
-
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (ArchivedChatException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error deleting chat {}", id, e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,70 @@
+package com.example.springtest.controller;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.exception.ResourceNotFoundException;
+import com.example.springtest.id.UuidV7;
+import com.example.springtest.realtime.RealtimeGateway;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/realtime")
+@RequiredArgsConstructor
+public class RealtimeController {
+
+    private static final String CHANNEL_PREFIX = "chat-";
+
+    private final RealtimeGateway realtimeGateway;
+    private final RealtimeConfig realtimeConfig;
+
+    /**
+     * Subscribe to a user's channel over Server-Sent Events (in-process gateway, publisher IN_PROCESS or BOTH)
+     * Same channel and event names as Pusher: new-message, edit-message, delete-message, messages-read
+     * GET /api/v1/realtime/chat-{uuid}
+     */
+    @GetMapping(value = "/{channel}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable String channel) {
+        RealtimeConfig.Publisher publisher = realtimeConfig.getPublisher();
+        if (publisher != RealtimeConfig.Publisher.IN_PROCESS && publisher != RealtimeConfig.Publisher.BOTH) {
+            throw new ResourceNotFoundException("The in-process realtime gateway is disabled (chat.realtime.publisher=" + publisher + ")");
+        }
+        if (!channel.startsWith(CHANNEL_PREFIX) || !UuidV7.isValid(channel.substring(CHANNEL_PREFIX.length()))) {
+            throw new ResourceNotFoundException("Unknown realtime channel: " + channel);
+        }
+        log.debug("GET /api/v1/realtime/{} - Subscribe", channel);
+
+        SseEmitter emitter = new SseEmitter(realtimeConfig.getGateway().getConnectionTimeoutMs());
+        RealtimeGateway.Connection connection = realtimeGateway.subscribe(channel, new EmitterSink(emitter));
+        emitter.onCompletion(() -> realtimeGateway.disconnect(connection));
+        emitter.onTimeout(() -> realtimeGateway.disconnect(connection));
+        emitter.onError(error -> realtimeGateway.disconnect(connection));
+        return emitter;
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements RealtimeGateway.EventSink {
+
+        @Override
+        public void send(String event, String data) throws IOException {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.springtest.controller;
 
+import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.CursorPageResponse;
+import com.example.springtest.dto.InboxEntryResponse;
 import com.example.springtest.dto.UserRequest;
 import com.example.springtest.dto.UserResponse;
 import com.example.springtest.dto.UserWithChatsResponse;
+import com.example.springtest.service.InboxService;
+import com.example.springtest.service.SearchService;
 import com.example.springtest.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +23,8 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final InboxService inboxService;
+    private final SearchService searchService;
 
     /**
      * Create a new user
@@ -41,6 +48,19 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Get one page of users in id order
+     * GET /api/v1/users/page?limit=50&after={nextCursor}
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageResponse<UserResponse>> getUserPage(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long after) {
+        log.info("GET /api/v1/users/page - Retrieve user page after id: {}", after);
+        CursorPageResponse<UserResponse> page = userService.getUserPage(limit, after);
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * Get user by ID
      * GET /api/v1/users/{id}
@@ -85,6 +105,49 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
 
+    /**
+     * Get one page of a user's sent and received chats (latest first, then older via cursor)
+     * GET /api/v1/users/uuid/{uuid}/timeline?limit=50&cursor=...
+     */
+    @GetMapping("/uuid/{uuid}/timeline")
+    public ResponseEntity<CursorPageResponse<ChatResponse>> getTimeline(
+            @PathVariable String uuid,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("GET /api/v1/users/uuid/{}/timeline - Retrieve chat timeline page", uuid);
+        CursorPageResponse<ChatResponse> page = userService.getTimeline(uuid, limit, cursor);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Get one page of a user's conversations with last message and unread count (most recent first)
+     * GET /api/v1/users/{uuid}/inbox?limit=50&cursor=...
+     */
+    @GetMapping("/{uuid}/inbox")
+    public ResponseEntity<CursorPageResponse<InboxEntryResponse>> getInbox(
+            @PathVariable String uuid,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("GET /api/v1/users/{}/inbox - Retrieve inbox page", uuid);
+        CursorPageResponse<InboxEntryResponse> page = inboxService.getInbox(uuid, limit, cursor);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Search a user's sent and received chats for messages containing every word of q (newest first)
+     * GET /api/v1/users/{uuid}/search?q=lunch+tomorrow&limit=20&cursor=...
+     */
+    @GetMapping("/{uuid}/search")
+    public ResponseEntity<CursorPageResponse<ChatResponse>> searchChats(
+            @PathVariable String uuid,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("GET /api/v1/users/{}/search - Search chats", uuid);
+        CursorPageResponse<ChatResponse> page = searchService.search(uuid, q, limit, cursor);
+        return ResponseEntity.ok(page);
+    }
+
     /**
      * Update user
      * PUT /api/v1/users/{id}
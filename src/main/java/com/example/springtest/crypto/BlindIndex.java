@@ -0,0 +1,105 @@
+package com.example.springtest.crypto;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.config.SearchConfig;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Keyed hashes of normalized words, stored in chat_search_tokens so encrypted messages can be
+ * searched with an index lookup. Equal words give equal tokens (that is what makes them searchable),
+ * so the table reveals which messages share words, but not the words themselves without the key.
+ */
+@Component
+public class BlindIndex {
+
+    public static final int TOKEN_SIZE = 16;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int MAX_WORD_LENGTH = 64;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final SecretKeySpec key;
+    private final int maxTokens;
+    private final ObjectPool<Mac> macs;
+
+    public BlindIndex(SearchConfig searchConfig, EncryptionConfig encryptionConfig) {
+        String indexKey = searchConfig.getIndexKey();
+        this.key = indexKey != null && !indexKey.isBlank()
+                ? new SecretKeySpec(sha256(indexKey), MAC_ALGORITHM)
+                : new SecretKeySpec(sha256("search-index:" + encryptionConfig.getSecretKey()), MAC_ALGORITHM);
+        this.maxTokens = searchConfig.getMaxTokensPerMessage();
+        this.macs = new ObjectPool<>(this::newMac, POOL_SIZE);
+    }
+
+    /**
+     * Distinct normalized words of a message or query, in order of first appearance
+     */
+    public Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        for (String word : WORD_SEPARATOR.split(normalized)) {
+            if (word.length() >= MIN_WORD_LENGTH && word.length() <= MAX_WORD_LENGTH) {
+                words.add(word);
+                if (words.size() == maxTokens) {
+                    break;
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Blind index tokens of every word in the text
+     */
+    public List<byte[]> tokens(String text) {
+        Set<String> words = words(text);
+        List<byte[]> tokens = new ArrayList<>(words.size());
+        Mac mac = macs.borrow();
+        try {
+            for (String word : words) {
+                tokens.add(Arrays.copyOf(mac.doFinal(word.getBytes(StandardCharsets.UTF_8)), TOKEN_SIZE));
+            }
+        } finally {
+            macs.release(mac);
+        }
+        return tokens;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+
+    private static byte[] sha256(String secret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.springtest.crypto;
+
+import com.example.springtest.config.EncryptionConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.DataFormatException;
+
+/**
+ * Hot-path AES engine used by EncryptionService.
+ * - AES keys are derived once per key id and re-derived only when the configured secret changes
+ * - New envelopes use the active key id; reads pick the key from the envelope header
+ * - Cipher and SecureRandom instances are pooled instead of created per call
+ * - Envelope plaintexts above chat.encryption.compression.threshold-bytes are deflated first
+ * - AES-GCM (envelope format) runs on the JDK intrinsics, which use AES-NI/CLMUL where available
+ */
+@Component
+@RequiredArgsConstructor
+public class CryptoEngine {
+
+    public static final int CBC_IV_SIZE = 16; // 128 bits
+
+    private static final String CBC_ALGORITHM = "AES/CBC/PKCS5Padding";
+    private static final String GCM_ALGORITHM = "AES/GCM/NoPadding";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final EncryptionConfig encryptionConfig;
+
+    private final ObjectPool<Cipher> cbcCiphers = new ObjectPool<>(() -> newCipher(CBC_ALGORITHM), POOL_SIZE);
+    private final ObjectPool<Cipher> gcmCiphers = new ObjectPool<>(() -> newCipher(GCM_ALGORITHM), POOL_SIZE);
+    private final ObjectPool<SecureRandom> randoms = new ObjectPool<>(SecureRandom::new, POOL_SIZE);
+    private final MessageCompressor compressor = new MessageCompressor();
+
+    private final AtomicReferenceArray<DerivedKey> derivedKeys = new AtomicReferenceArray<>(MessageEnvelope.MAX_KEY_ID + 1);
+
+    /**
+     * Encrypt with AES-256-CBC using key 0 (legacy format has no key id)
+     * Format: IV (16 bytes) + encrypted data
+     */
+    public byte[] encryptCbc(byte[] plain) throws GeneralSecurityException {
+        Cipher cipher = cbcCiphers.borrow();
+        try {
+            byte[] iv = new byte[CBC_IV_SIZE];
+            nextBytes(iv);
+            cipher.init(Cipher.ENCRYPT_MODE, key(0), new IvParameterSpec(iv));
+
+            // Write IV and ciphertext into a single buffer to avoid an extra copy
+            byte[] combined = new byte[CBC_IV_SIZE + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, combined, 0, CBC_IV_SIZE);
+            int written = cipher.doFinal(plain, 0, plain.length, combined, CBC_IV_SIZE);
+            return written == combined.length - CBC_IV_SIZE
+                    ? combined
+                    : Arrays.copyOf(combined, CBC_IV_SIZE + written);
+        } finally {
+            cbcCiphers.release(cipher);
+        }
+    }
+
+    /**
+     * Decrypt AES-256-CBC data laid out as IV (16 bytes) + encrypted data
+     */
+    public byte[] decryptCbc(byte[] combined, int offset, int length) throws GeneralSecurityException {
+        if (length < CBC_IV_SIZE) {
+            throw new GeneralSecurityException("Encrypted payload is shorter than the IV");
+        }
+        Cipher cipher = cbcCiphers.borrow();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key(0), new IvParameterSpec(combined, offset, CBC_IV_SIZE));
+            return cipher.doFinal(combined, offset + CBC_IV_SIZE, length - CBC_IV_SIZE);
+        } finally {
+            cbcCiphers.release(cipher);
+        }
+    }
+
+    /**
+     * Encrypt into the binary envelope format: header + nonce + ciphertext/tag
+     */
+    public byte[] seal(byte[] plain) throws GeneralSecurityException {
+        byte[] compressed = shouldCompress(plain) ? compressor.compress(plain) : null;
+        byte[] payload = compressed != null ? compressed : plain;
+
+        int keyId = activeKeyId();
+        byte header = MessageEnvelope.header(MessageEnvelope.VERSION_GCM, keyId, compressed != null);
+        byte[] envelope = new byte[MessageEnvelope.sizeFor(payload.length)];
+        byte[] nonce = new byte[MessageEnvelope.NONCE_SIZE];
+        nextBytes(nonce);
+        envelope[0] = header;
+        System.arraycopy(nonce, 0, envelope, MessageEnvelope.HEADER_SIZE, MessageEnvelope.NONCE_SIZE);
+
+        Cipher cipher = gcmCiphers.borrow();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key(keyId), new GCMParameterSpec(MessageEnvelope.TAG_BITS, nonce));
+            cipher.updateAAD(envelope, 0, MessageEnvelope.HEADER_SIZE);
+            cipher.doFinal(payload, 0, payload.length, envelope, MessageEnvelope.HEADER_SIZE + MessageEnvelope.NONCE_SIZE);
+            return envelope;
+        } finally {
+            gcmCiphers.release(cipher);
+        }
+    }
+
+    /**
+     * Decrypt a binary envelope produced by seal
+     */
+    public byte[] open(byte[] envelope) throws GeneralSecurityException {
+        int bodyOffset = MessageEnvelope.HEADER_SIZE + MessageEnvelope.NONCE_SIZE;
+        if (envelope.length < MessageEnvelope.sizeFor(0)) {
+            throw new GeneralSecurityException("Encrypted envelope is truncated");
+        }
+        byte header = envelope[0];
+        if (MessageEnvelope.version(header) != MessageEnvelope.VERSION_GCM || MessageEnvelope.hasReservedBits(header)) {
+            throw new GeneralSecurityException("Unsupported envelope header: " + (header & 0xFF));
+        }
+
+        Cipher cipher = gcmCiphers.borrow();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key(MessageEnvelope.keyId(header)), new GCMParameterSpec(
+                    MessageEnvelope.TAG_BITS, envelope, MessageEnvelope.HEADER_SIZE, MessageEnvelope.NONCE_SIZE));
+            cipher.updateAAD(envelope, 0, MessageEnvelope.HEADER_SIZE);
+            byte[] payload = cipher.doFinal(envelope, bodyOffset, envelope.length - bodyOffset);
+            return MessageEnvelope.isCompressed(header) ? decompress(payload) : payload;
+        } finally {
+            gcmCiphers.release(cipher);
+        }
+    }
+
+    private boolean shouldCompress(byte[] plain) {
+        EncryptionConfig.Compression compression = encryptionConfig.getCompression();
+        return compression.isEnabled() && plain.length >= compression.getThresholdBytes();
+    }
+
+    private byte[] decompress(byte[] payload) throws GeneralSecurityException {
+        try {
+            return compressor.decompress(payload, 0, payload.length);
+        } catch (DataFormatException e) {
+            throw new GeneralSecurityException("Compressed message is corrupt", e);
+        }
+    }
+
+    /**
+     * Fill the array with random bytes from a pooled SecureRandom
+     */
+    public void nextBytes(byte[] bytes) {
+        SecureRandom random = randoms.borrow();
+        try {
+            random.nextBytes(bytes);
+        } finally {
+            randoms.release(random);
+        }
+    }
+
+    /**
+     * Key id used for new envelopes
+     */
+    public int activeKeyId() {
+        return encryptionConfig.getActiveKeyId();
+    }
+
+    /**
+     * AES key for a key id; derived from the configured secret once and cached until the secret changes
+     */
+    public SecretKeySpec key(int keyId) throws GeneralSecurityException {
+        String secret = null;
+        if (keyId >= 0 && keyId <= MessageEnvelope.MAX_KEY_ID) {
+            secret = keyId == 0 ? encryptionConfig.getSecretKey() : encryptionConfig.getKeys().get(keyId);
+        }
+        if (secret == null) {
+            throw new GeneralSecurityException("Unknown encryption key id: " + keyId);
+        }
+        DerivedKey key = derivedKeys.get(keyId);
+        if (key == null || !key.secret().equals(secret)) {
+            key = new DerivedKey(secret, deriveKey(secret));
+            derivedKeys.set(keyId, key);
+        }
+        return key.spec();
+    }
+
+    /**
+     * Create a 256-bit key from the secret string using SHA-256
+     */
+    static SecretKeySpec deriveKey(String secret) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] key = sha.digest(secret.getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(key, KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher not available: " + transformation, e);
+        }
+    }
+
+    private record DerivedKey(String secret, SecretKeySpec spec) {
+    }
+}
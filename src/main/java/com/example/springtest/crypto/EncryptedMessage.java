@@ -0,0 +1,16 @@
+package com.example.springtest.crypto;
+
+/**
+ * A stored chat message in any of the supported formats:
+ * - messageData set: binary envelope (see MessageEnvelope)
+ * - message set and encrypted: legacy Base64 IV + AES-CBC text
+ * - message set and not encrypted: plain text written before encryption was introduced
+ */
+public interface EncryptedMessage {
+
+    String getMessage();
+
+    byte[] getMessageData();
+
+    Boolean getIsEncrypted();
+}
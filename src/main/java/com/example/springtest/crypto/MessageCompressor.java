@@ -0,0 +1,91 @@
+package com.example.springtest.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw DEFLATE with a preset dictionary of common chat text, applied before encryption.
+ * The dictionary lets short messages compress too, since they can reference it from the first byte.
+ *
+ * IMPORTANT: DICTIONARY is part of the stored format. Changing it makes every compressed message
+ * unreadable; a new dictionary needs a new envelope version or flag.
+ */
+public final class MessageCompressor {
+
+    // Most frequent phrases go last: DEFLATE encodes closer back-references with fewer bits
+    static final byte[] DICTIONARY = ("""
+            meeting tomorrow morning afternoon evening tonight weekend schedule project report \
+            presentation document email phone call message please let me know when you are free \
+            sounds good see you then talk to you later no problem of course absolutely perfect \
+            happy birthday congratulations thank you so much that is very kind of you \
+            did you see the can you send me could you help me with the would you like to \
+            I will be there I am on my way I just sent it to your email I might need your feedback \
+            what do you think how about at the office at home at noon right now in a few minutes \
+            sorry for the late reply let me check and get back to you have a great day good night \
+            good morning hello hi hey how are you doing today I am doing great thanks for asking \
+            yes no okay ok sure thanks thank you lol haha :) the and you that to is it for in of \
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final ObjectPool<Deflater> deflaters = new ObjectPool<>(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true), POOL_SIZE);
+    private final ObjectPool<Inflater> inflaters = new ObjectPool<>(() -> new Inflater(true), POOL_SIZE);
+
+    /**
+     * Compress the input
+     * Return: compressed bytes, or null when compression does not make the message smaller
+     */
+    public byte[] compress(byte[] input) {
+        Deflater deflater = deflaters.borrow();
+        try {
+            deflater.reset();
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(input);
+            deflater.finish();
+
+            // Anything not smaller than the input is not worth storing compressed
+            byte[] buffer = new byte[input.length];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    return null;
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return length < input.length ? Arrays.copyOf(buffer, length) : null;
+        } finally {
+            deflaters.release(deflater);
+        }
+    }
+
+    /**
+     * Inflate data produced by compress
+     */
+    public byte[] decompress(byte[] input, int offset, int length) throws DataFormatException {
+        Inflater inflater = inflaters.borrow();
+        try {
+            inflater.reset();
+            inflater.setDictionary(DICTIONARY);
+            inflater.setInput(input, offset, length);
+
+            byte[] buffer = new byte[Math.max(64, length * 4)];
+            int size = 0;
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int inflated = inflater.inflate(buffer, size, buffer.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Compressed message is truncated");
+                }
+                size += inflated;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        } finally {
+            inflaters.release(inflater);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.springtest.crypto;
+
+/**
+ * Binary layout of encrypted messages stored in chats.message_data
+ *
+ * Byte 0 (header): VVCR KKKK
+ *   VV   - format version (1 = AES-256-GCM)
+ *   C    - compressed flag: plaintext was deflated with MessageCompressor before encryption
+ *   R    - reserved (must be 0)
+ *   KKKK - key id (0-15)
+ * Bytes 1-12: GCM nonce
+ * Rest: ciphertext followed by the 16 byte authentication tag
+ *
+ * The header byte is passed as AAD, so a tampered version, flag or key id fails authentication.
+ */
+public final class MessageEnvelope {
+
+    public static final int VERSION_GCM = 1;
+    public static final int HEADER_SIZE = 1;
+    public static final int NONCE_SIZE = 12;
+    public static final int TAG_BITS = 128;
+    public static final int MAX_KEY_ID = 0x0F;
+
+    private static final int VERSION_SHIFT = 6;
+    private static final int COMPRESSED_FLAG = 0x20;
+    private static final int RESERVED_MASK = 0x10;
+
+    private MessageEnvelope() {
+    }
+
+    public static byte header(int version, int keyId, boolean compressed) {
+        if (keyId < 0 || keyId > MAX_KEY_ID) {
+            throw new IllegalArgumentException("Key id must be between 0 and " + MAX_KEY_ID + ": " + keyId);
+        }
+        return (byte) ((version << VERSION_SHIFT) | (compressed ? COMPRESSED_FLAG : 0) | keyId);
+    }
+
+    public static int version(byte header) {
+        return (header & 0xFF) >>> VERSION_SHIFT;
+    }
+
+    public static int keyId(byte header) {
+        return header & MAX_KEY_ID;
+    }
+
+    public static boolean isCompressed(byte header) {
+        return (header & COMPRESSED_FLAG) != 0;
+    }
+
+    public static boolean hasReservedBits(byte header) {
+        return (header & RESERVED_MASK) != 0;
+    }
+
+    /**
+     * Total envelope length for a plaintext of the given size
+     */
+    public static int sizeFor(int plainLength) {
+        return HEADER_SIZE + NONCE_SIZE + plainLength + TAG_BITS / 8;
+    }
+}
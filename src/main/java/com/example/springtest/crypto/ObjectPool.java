@@ -0,0 +1,45 @@
+package com.example.springtest.crypto;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Small lock-free pool for expensive, non thread-safe JCA objects (Cipher, Mac, SecureRandom...).
+ * Does not use ThreadLocal or monitors, so it is safe to use from virtual threads.
+ */
+public final class ObjectPool<T> {
+
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final Supplier<T> factory;
+    private final int maxIdle;
+
+    public ObjectPool(Supplier<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Take an idle instance or create a new one when the pool is empty
+     */
+    public T borrow() {
+        T instance = idle.poll();
+        if (instance != null) {
+            idleCount.decrementAndGet();
+            return instance;
+        }
+        return factory.get();
+    }
+
+    /**
+     * Give an instance back; extra instances above maxIdle are left to the GC
+     */
+    public void release(T instance) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(instance);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.springtest.datasource;
+
+/**
+ * Lookup keys of ReadWriteRoutingDataSource
+ */
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
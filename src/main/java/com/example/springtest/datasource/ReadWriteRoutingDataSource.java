@@ -0,0 +1,26 @@
+package com.example.springtest.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica and everything else (writes, jobs, Flyway,
+ * statements outside a transaction) to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy: the route is decided when the first statement
+ * needs a physical connection, after the transaction manager has marked the transaction read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagGuard replicaLagGuard;
+
+    public ReadWriteRoutingDataSource(ReplicaLagGuard replicaLagGuard) {
+        this.replicaLagGuard = replicaLagGuard;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean replica = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !replicaLagGuard.isPinnedToPrimary();
+        return replica ? DataSourceRoute.REPLICA : DataSourceRoute.PRIMARY;
+    }
+}
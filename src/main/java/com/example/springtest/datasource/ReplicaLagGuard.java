@@ -0,0 +1,91 @@
+package com.example.springtest.datasource;
+
+import com.example.springtest.config.ReplicaDataSourceConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Read-your-writes on top of replica routing: users who wrote within the last
+ * chat.datasource.replica.primary-stickiness-ms keep reading from the primary.
+ * - Services call recordWrite in their write transactions; the window starts at commit
+ * - Read-only services call readAs before their first statement to pin the transaction
+ * Recent writers are kept in this node's memory, so with several nodes the guarantee holds for
+ * requests that reach the node that served the write. Without a replica nothing is routed anyway.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReplicaLagGuard {
+
+    private static final int MAX_TRACKED_WRITERS = 100_000;
+
+    private final ReplicaDataSourceConfig replicaConfig;
+
+    private final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+    private Cache<String, Boolean> recentWriters;
+
+    @PostConstruct
+    void initCache() {
+        recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_WRITERS)
+                .expireAfterWrite(Duration.ofMillis(replicaConfig.getPrimaryStickinessMs()))
+                .build();
+    }
+
+    /**
+     * Keep the reads of these users on the primary for the stickiness window after the current transaction commits
+     */
+    public void recordWrite(String... userUuids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markWriters(userUuids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markWriters(userUuids);
+            }
+        });
+    }
+
+    /**
+     * Declare who the current read-only transaction reads for; if any of them wrote recently,
+     * the transaction uses the primary. Has no effect once the transaction holds a connection.
+     */
+    public void readAs(String... userUuids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || Boolean.TRUE.equals(pinnedToPrimary.get())) {
+            return;
+        }
+        for (String uuid : userUuids) {
+            if (uuid != null && recentWriters.getIfPresent(uuid) != null) {
+                pinnedToPrimary.set(Boolean.TRUE);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        pinnedToPrimary.remove();
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    public boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(pinnedToPrimary.get());
+    }
+
+    private void markWriters(String... userUuids) {
+        for (String uuid : userUuids) {
+            if (uuid != null) {
+                recentWriters.put(uuid, Boolean.TRUE);
+            }
+        }
+    }
+}
@@ -10,4 +10,12 @@ import lombok.NoArgsConstructor;
 public class ChatBetweenUsersRequest {
     private String chatFromUuid;
     private String chatToUuid;
+    /**
+     * Page size for /between/page (defaults to chat.pagination.default-page-size)
+     */
+    private Integer limit;
+    /**
+     * nextCursor from the previous page; empty for the latest messages
+     */
+    private String cursor;
 }
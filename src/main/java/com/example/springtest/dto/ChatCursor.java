@@ -0,0 +1,38 @@
+package com.example.springtest.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a conversation ordered by (created_at, id), exchanged with clients as an opaque string
+ */
+public record ChatCursor(LocalDateTime createdAt, long id) {
+
+    /**
+     * Position after the newest possible message, used for the first page
+     */
+    public static final ChatCursor LATEST = new ChatCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor from a client; null or blank means "start from the latest message"
+     */
+    public static ChatCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return LATEST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new ChatCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.springtest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters of GET /api/v1/chats/export (query parameters); from is inclusive, to is exclusive
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatExportRequest {
+    private String senderUuid;
+    private String receiverUuid;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
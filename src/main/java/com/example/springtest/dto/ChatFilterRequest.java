@@ -9,4 +9,14 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ChatFilterRequest {
     private String userUuid;
+
+    /**
+     * Page size for the /page endpoints (default and maximum: chat.pagination.*)
+     */
+    private Integer limit;
+
+    /**
+     * Return chats with an id greater than this (the previous page's nextCursor); none for the first page
+     */
+    private Long after;
 }
@@ -0,0 +1,29 @@
+package com.example.springtest.dto;
+
+import com.example.springtest.crypto.EncryptedMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of a chat with both participants, read in one query by the ChatRepository
+ * "Rows" methods. Carries exactly what ChatResponse needs, so list endpoints never touch the
+ * lazy chatFrom/chatTo associations (one SELECT on users per participant otherwise).
+ */
+@Data
+@AllArgsConstructor
+public class ChatRow implements EncryptedMessage {
+    private Long id;
+    private String uuid;
+    private String message;
+    private byte[] messageData;
+    private Boolean isEncrypted;
+    private Long chatFromId;
+    private String chatFromUuid;
+    private String chatFromName;
+    private Long chatToId;
+    private String chatToUuid;
+    private String chatToName;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.example.springtest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxEntryResponse {
+    private UserSummaryResponse peer;
+    private ChatResponse lastMessage;
+    private LocalDateTime lastMessageAt;
+    private int unreadCount;
+}
@@ -0,0 +1,21 @@
+package com.example.springtest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobProgressResponse {
+    private String jobName;
+    private String status;
+    private long processedRows;
+    private Long lastId;
+    private double rowsPerSecond;
+    private Long remainingRows;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
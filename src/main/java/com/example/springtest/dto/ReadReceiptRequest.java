@@ -0,0 +1,18 @@
+package com.example.springtest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptRequest {
+    private String readerUuid;
+    private String peerUuid;
+
+    /**
+     * Newest chat from peer that the reader has seen; acks below the stored mark are ignored
+     */
+    private Long lastReadChatId;
+}
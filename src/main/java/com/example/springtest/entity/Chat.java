@@ -1,24 +1,38 @@
 package com.example.springtest.entity;
 
+import com.example.springtest.crypto.EncryptedMessage;
+import com.example.springtest.id.TimeOrderedId;
+import com.example.springtest.id.UuidBinaryConverter;
+import com.example.springtest.id.UuidV7;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 @Table(name = "chats")
-public class Chat {
+public class Chat implements EncryptedMessage {
 
+    /**
+     * Time-ordered id assigned before the insert (TimeOrderedIds, see V16): inserts can be
+     * JDBC-batched, and ids keep growing with time across nodes
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
-    @Column(nullable = false, unique = true, updatable = false)
+    /**
+     * Canonical UUID string; stored as BINARY(16), new ids are time-ordered UUIDv7
+     */
+    @Convert(converter = UuidBinaryConverter.class)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(nullable = false, unique = true, updatable = false, length = 16)
     private String uuid;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,9 +43,30 @@ public class Chat {
     @JoinColumn(name = "chat_to", nullable = false)
     private User chatTo;
 
-    @Column(columnDefinition = "TEXT", nullable = false)
+    /**
+     * Canonical conversation of the (chatFrom, chatTo) pair; null until backfilled for old rows
+     */
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    /**
+     * Legacy Base64 AES-CBC (or plain) text; null for messages stored in message_data
+     */
+    @Column(columnDefinition = "TEXT")
     private String message;
 
+    /**
+     * Binary AES-GCM envelope, see MessageEnvelope
+     */
+    @Column(name = "message_data", columnDefinition = "BLOB")
+    private byte[] messageData;
+
+    /**
+     * Key id of message_data; null for legacy Base64 or plain text rows
+     */
+    @Column(name = "key_id", columnDefinition = "TINYINT")
+    private Integer keyId;
+
     @Column(name = "is_encrypted", nullable = false)
     private Boolean isEncrypted = false;
 
@@ -43,7 +78,7 @@ public class Chat {
 
     @PrePersist
     protected void onCreate() {
-        this.uuid = UUID.randomUUID().toString();
+        this.uuid = UuidV7.nextString();
         LocalDateTime now = LocalDateTime.now();
         this.createdAt = now;
         this.updatedAt = now;
@@ -0,0 +1,10 @@
+package com.example.springtest.exception;
+
+/**
+ * The chat was moved to chats_archive, which is read-only: it can be read but not edited or deleted
+ */
+public class ArchivedChatException extends RuntimeException {
+    public ArchivedChatException(String message) {
+        super(message);
+    }
+}
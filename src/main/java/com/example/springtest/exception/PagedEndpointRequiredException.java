@@ -0,0 +1,17 @@
+package com.example.springtest.exception;
+
+import lombok.Getter;
+
+/**
+ * An unpaged list endpoint was called with chat.pagination.legacy-full-list=false; the client has to use the paged one
+ */
+@Getter
+public class PagedEndpointRequiredException extends RuntimeException {
+
+    private final String pagedEndpoint;
+
+    public PagedEndpointRequiredException(String pagedEndpoint) {
+        super("Unpaged lists are disabled (chat.pagination.legacy-full-list=false); use " + pagedEndpoint);
+        this.pagedEndpoint = pagedEndpoint;
+    }
+}
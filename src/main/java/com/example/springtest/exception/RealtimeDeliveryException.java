@@ -0,0 +1,23 @@
+package com.example.springtest.exception;
+
+/**
+ * A realtime event could not be delivered; retryable for network errors and 5xx responses
+ */
+public class RealtimeDeliveryException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public RealtimeDeliveryException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public RealtimeDeliveryException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.springtest.id;
+
+import com.example.springtest.config.IdConfig;
+import com.example.springtest.repository.IdNodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * Gives this node its TimeOrderedIds node number: chat.ids.node-id when set, otherwise a lease on
+ * a free row of id_nodes, renewed every third of chat.ids.lease-ms and released on shutdown.
+ * Each claim and renewal tells TimeOrderedIds how long the number may be used; a node that lost its
+ * lease (e.g. paused longer than the lease) switches to a new number.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdNodeLease {
+
+    private final IdConfig idConfig;
+    private final IdNodeRepository idNodeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TimeOrderedIds timeOrderedIds;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    private volatile int leasedNode = -1;
+
+    @PostConstruct
+    void start() {
+        if (idConfig.getNodeId() >= 0) {
+            timeOrderedIds.useNode(idConfig.getNodeId());
+            log.info("Chat ids use configured node {}", idConfig.getNodeId());
+        } else {
+            claim();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@idConfig.leaseMs / 3}", initialDelayString = "#{@idConfig.leaseMs / 3}")
+    public void renew() {
+        int node = leasedNode;
+        if (node < 0) {
+            return;
+        }
+        long requestedAt = System.nanoTime();
+        if (idNodeRepository.renew(node, owner, idConfig.getLeaseMs())) {
+            timeOrderedIds.useLeasedNode(node, requestedAt, idConfig.getLeaseMs());
+        } else {
+            log.error("Lost the lease on id node {}; leasing another one", node);
+            claim();
+        }
+    }
+
+    @PreDestroy
+    void release() {
+        if (leasedNode >= 0) {
+            idNodeRepository.release(leasedNode, owner);
+        }
+    }
+
+    private void claim() {
+        long requestedAt = System.nanoTime();
+        Integer node = transactionTemplate.execute(tx -> idNodeRepository.claim(owner, idConfig.getLeaseMs()).orElse(null));
+        if (node == null) {
+            throw new IllegalStateException("All " + TimeOrderedIds.MAX_NODES + " id nodes are leased (id_nodes)");
+        }
+        timeOrderedIds.useLeasedNode(node, requestedAt, idConfig.getLeaseMs());
+        leasedNode = node;
+        log.info("Chat ids use leased node {}", node);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.springtest.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.resource.beans.container.spi.BeanContainer;
+import org.hibernate.resource.beans.spi.BeanInstanceProducer;
+import org.hibernate.resource.beans.spi.ManagedBeanRegistry;
+import org.hibernate.service.ServiceRegistry;
+
+import java.lang.reflect.Member;
+
+/**
+ * Hibernate generator behind @TimeOrderedId; no database round trip, so inserts stay batchable.
+ * The TimeOrderedIds bean comes from Hibernate's bean container, which Spring Boot backs with the
+ * application context; it is looked up on first use, after the context has created it.
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+    // The shared singleton rather than a new instance per lookup
+    private static final BeanContainer.LifecycleOptions SHARED_BEAN = new BeanContainer.LifecycleOptions() {
+        @Override
+        public boolean canUseCachedReferences() {
+            return true;
+        }
+
+        @Override
+        public boolean useJpaCompliantCreation() {
+            return false;
+        }
+    };
+
+    private static final BeanInstanceProducer NO_FALLBACK = new BeanInstanceProducer() {
+        @Override
+        public <B> B produceBeanInstance(Class<B> beanType) {
+            throw new IllegalStateException(beanType.getSimpleName() + " must be a bean of the application context");
+        }
+
+        @Override
+        public <B> B produceBeanInstance(String name, Class<B> beanType) {
+            return produceBeanInstance(beanType);
+        }
+    };
+
+    private final ServiceRegistry serviceRegistry;
+    private volatile TimeOrderedIds ids;
+
+    public TimeOrderedIdGenerator(TimeOrderedId annotation, Member member, CustomIdGeneratorCreationContext context) {
+        this.serviceRegistry = context.getServiceRegistry();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        TimeOrderedIds current = ids;
+        if (current == null) {
+            BeanContainer beanContainer = serviceRegistry.requireService(ManagedBeanRegistry.class).getBeanContainer();
+            if (beanContainer == null) {
+                throw new IllegalStateException("TimeOrderedIds needs a Hibernate bean container (hibernate.resource.beans.container)");
+            }
+            current = beanContainer.getBean(TimeOrderedIds.class, SHARED_BEAN, NO_FALLBACK).getBeanInstance();
+            ids = current;
+        }
+        return current.next();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.springtest.id;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.UUID;
+
+/**
+ * Maps the canonical UUID string of an entity to the BINARY(16) column (see V13).
+ * Also applies to query parameters compared with the attribute, so repositories keep taking strings.
+ */
+@Converter
+public class UuidBinaryConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String uuid) {
+        return uuid != null ? UuidV7.toBytes(UUID.fromString(uuid)) : null;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return UuidV7.toString(bytes);
+    }
+}
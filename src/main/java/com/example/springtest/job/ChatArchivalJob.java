@@ -0,0 +1,119 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.ArchiveConfig;
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.repository.ChatArchiveRepository;
+import com.example.springtest.service.ChatArchiveService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves chats older than chat.archive.older-than-days from chats to chats_archive.
+ * Chunks walk chats from the lowest id and stop at the first row that is too recent, so the
+ * archive is always a contiguous id prefix (the hot boundary ChatArchiveService reads with).
+ * Each chunk copies and deletes one id range in the same transaction.
+ * Runs on chat.archive.cron on one node at a time (see ChunkedJob.startExclusive); rows moved per
+ * run are published as chat.archive.rows.moved.
+ */
+@Slf4j
+@Component
+public class ChatArchivalJob extends ChunkedJob {
+
+    public static final String NAME = "archive-chats";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveConfig archiveConfig;
+    private final ChatArchiveService chatArchiveService;
+    private final DistributionSummary rowsMoved;
+
+    private volatile LocalDateTime cutoff;
+
+    public ChatArchivalJob(JobCheckpointStore checkpointStore, TransactionTemplate transactionTemplate,
+                           JobConfig jobConfig, JdbcTemplate jdbcTemplate, ArchiveConfig archiveConfig,
+                           ChatArchiveService chatArchiveService, MeterRegistry meterRegistry) {
+        super(NAME, checkpointStore, transactionTemplate, jobConfig);
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveConfig = archiveConfig;
+        this.chatArchiveService = chatArchiveService;
+        this.rowsMoved = DistributionSummary.builder("chat.archive.rows.moved")
+                .description("Chats moved to chats_archive per archival run")
+                .baseUnit("rows")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${chat.archive.cron:0 30 3 * * *}")
+    public void runScheduled() {
+        if (archiveConfig.isEnabled() && !startOnOneNode()) {
+            log.info("Job {} is still running, skipping the scheduled run", NAME);
+        }
+    }
+
+    /**
+     * Start a run unless one is in progress on any node
+     * Return: false if the job is already running
+     */
+    public boolean startOnOneNode() {
+        return startExclusive(archiveConfig.getTakeoverAfterMs());
+    }
+
+    /**
+     * Chats currently old enough to be archived
+     */
+    public long countArchivableRows() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chats WHERE created_at < ?", Long.class,
+                LocalDateTime.now().minusDays(archiveConfig.getOlderThanDays()));
+        return count != null ? count : 0;
+    }
+
+    @Override
+    protected void onStart() {
+        // One cutoff per run, so a long run does not keep chasing rows that age while it works
+        cutoff = LocalDateTime.now().minusDays(archiveConfig.getOlderThanDays());
+    }
+
+    @Override
+    protected ChunkResult processChunk(long afterId, int limit) {
+        List<LocalDateTime> createdAt = new ArrayList<>(limit);
+        List<Long> ids = jdbcTemplate.query(
+                "SELECT id, created_at FROM chats WHERE id > ? ORDER BY id LIMIT ? FOR UPDATE",
+                (rs, rowNum) -> {
+                    createdAt.add(rs.getObject("created_at", LocalDateTime.class));
+                    return rs.getLong("id");
+                },
+                afterId, limit);
+
+        // Archivable prefix of the chunk; a recent row ends the run
+        int movable = 0;
+        while (movable < ids.size() && createdAt.get(movable).isBefore(cutoff)) {
+            movable++;
+        }
+        if (movable == 0) {
+            return new ChunkResult(0, 0, afterId);
+        }
+        long lastId = ids.get(movable - 1);
+
+        jdbcTemplate.update(
+                "INSERT INTO chats_archive (" + ChatArchiveRepository.COLUMNS + ") " +
+                "SELECT " + ChatArchiveRepository.COLUMNS + " FROM chats WHERE id > ? AND id <= ?",
+                afterId, lastId);
+        int moved = jdbcTemplate.update("DELETE FROM chats WHERE id > ? AND id <= ?", afterId, lastId);
+
+        // Moving the boundary before the commit is harmless: archive reads of rows still in chats find nothing
+        chatArchiveService.advanceBoundary(lastId);
+        return new ChunkResult(moved, moved, lastId);
+    }
+
+    @Override
+    protected void onComplete() {
+        rowsMoved.record(rowsThisRun());
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.dto.JobProgressResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for background jobs that walk a table by id (keyset pagination) in bounded chunks.
+ * - Each chunk runs in its own transaction together with the checkpoint update
+ * - A restarted job resumes after the last committed id, if it still has the same runKey
+ * - Throughput is capped by chat.jobs.max-rows-per-second
+ */
+@Slf4j
+public abstract class ChunkedJob {
+
+    public enum Status { IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED }
+
+    private final String name;
+    private final JobCheckpointStore checkpointStore;
+    private final TransactionTemplate transactionTemplate;
+    private final JobConfig jobConfig;
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong rowsThisRun = new AtomicLong();
+    private volatile Status status = Status.IDLE;
+    private volatile long lastId;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    private volatile Thread worker;
+
+    protected ChunkedJob(String name, JobCheckpointStore checkpointStore,
+                         TransactionTemplate transactionTemplate, JobConfig jobConfig) {
+        this.name = name;
+        this.checkpointStore = checkpointStore;
+        this.transactionTemplate = transactionTemplate;
+        this.jobConfig = jobConfig;
+    }
+
+    /**
+     * Process the next chunk of at most limit rows with id greater than afterId.
+     * Called inside a transaction; must not commit on its own.
+     */
+    protected abstract ChunkResult processChunk(long afterId, int limit);
+
+    /**
+     * Hook called on the job thread before the first chunk of a run
+     */
+    protected void onStart() {
+    }
+
+    /**
+     * Hook called on the job thread after the last chunk of a completed run
+     */
+    protected void onComplete() {
+    }
+
+    /**
+     * Target of the run, stored with the checkpoint; a checkpoint taken for another target is not
+     * resumed and the run starts over from the first id (null when the job has no target)
+     */
+    protected String runKey() {
+        return null;
+    }
+
+    /**
+     * Estimate of rows still to process, if the job can tell (null otherwise)
+     */
+    protected Long remainingRows() {
+        return null;
+    }
+
+    /**
+     * Rows scanned since the current run started
+     */
+    protected long rowsThisRun() {
+        return rowsThisRun.get();
+    }
+
+    /**
+     * Start the job in the background
+     * Return: false if it is already running
+     */
+    public synchronized boolean start() {
+        if (status == Status.RUNNING || status == Status.STOPPING) {
+            return false;
+        }
+        status = Status.RUNNING;
+        error = null;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        worker = Thread.ofPlatform().daemon().name("job-" + name).start(this::run);
+        return true;
+    }
+
+    /**
+     * Start the job unless it is running on this node or on another one (see JobCheckpointStore.claim),
+     * for triggers such as schedules that fire on every node at once
+     * Return: false if it is already running somewhere
+     */
+    public synchronized boolean startExclusive(long takeoverAfterMs) {
+        if (isRunning()) {
+            return false;
+        }
+        Boolean claimed = transactionTemplate.execute(tx -> checkpointStore.claim(name, takeoverAfterMs));
+        return Boolean.TRUE.equals(claimed) && start();
+    }
+
+    /**
+     * Ask the job to stop after the current chunk; progress is kept in the checkpoint
+     */
+    public void stop() {
+        if (status == Status.RUNNING) {
+            status = Status.STOPPING;
+        }
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING || status == Status.STOPPING;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JobProgressResponse getProgress() {
+        return new JobProgressResponse(name, status.name(), processedRows.get(), lastId,
+                rowsPerSecond(), remainingRows(), startedAt, finishedAt, error);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stop();
+        Thread current = worker;
+        if (current != null) {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void run() {
+        // Resume after the last committed chunk unless the previous run went all the way through
+        // or worked towards another target
+        String runKey = runKey();
+        var checkpoint = checkpointStore.load(name)
+                .filter(saved -> !Status.COMPLETED.name().equals(saved.status()))
+                .filter(saved -> {
+                    boolean sameTarget = Objects.equals(saved.runKey(), runKey);
+                    if (!sameTarget) {
+                        log.info("Job {} checkpoint was for {}, starting over for {}", name, saved.runKey(), runKey);
+                    }
+                    return sameTarget;
+                });
+        lastId = checkpoint.map(JobCheckpointStore.JobCheckpoint::lastId).orElse(0L);
+        processedRows.set(checkpoint.map(JobCheckpointStore.JobCheckpoint::processedRows).orElse(0L));
+        log.info("Job {} starting after id {}", name, lastId);
+
+        rowsThisRun.set(0);
+        long startNanos = System.nanoTime();
+        try {
+            onStart();
+            while (status == Status.RUNNING) {
+                long afterId = lastId;
+                ChunkResult result = transactionTemplate.execute(tx -> {
+                    ChunkResult chunk = processChunk(afterId, jobConfig.getChunkSize());
+                    if (chunk.scannedRows() > 0) {
+                        checkpointStore.save(name, chunk.lastId(),
+                                processedRows.get() + chunk.processedRows(), Status.RUNNING.name(), runKey);
+                    }
+                    return chunk;
+                });
+
+                if (result == null || result.scannedRows() == 0) {
+                    checkpointStore.save(name, lastId, processedRows.get(), Status.COMPLETED.name(), runKey);
+                    finish(Status.COMPLETED);
+                    log.info("Job {} completed, {} rows processed", name, processedRows.get());
+                    onComplete();
+                    return;
+                }
+
+                lastId = result.lastId();
+                processedRows.addAndGet(result.processedRows());
+                throttle(startNanos, rowsThisRun.addAndGet(result.scannedRows()));
+            }
+            checkpointStore.save(name, lastId, processedRows.get(), Status.STOPPED.name(), runKey);
+            finish(Status.STOPPED);
+            log.info("Job {} stopped at id {}", name, lastId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(Status.STOPPED);
+        } catch (Exception e) {
+            log.error("Job {} failed after id {}", name, lastId, e);
+            error = e.getMessage();
+            finish(Status.FAILED);
+        }
+    }
+
+    /**
+     * Sleep just long enough to keep the average rate under the configured rows/sec
+     */
+    private void throttle(long startNanos, long rows) throws InterruptedException {
+        int maxRowsPerSecond = jobConfig.getMaxRowsPerSecond();
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private double rowsPerSecond() {
+        LocalDateTime start = startedAt;
+        if (start == null) {
+            return 0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return rowsThisRun.get() * 1000.0 / millis;
+    }
+
+    private void finish(Status finalStatus) {
+        finishedAt = LocalDateTime.now();
+        status = finalStatus;
+    }
+
+    /**
+     * Outcome of one chunk
+     * scannedRows - rows read (0 means the table has been fully walked)
+     * processedRows - rows actually changed
+     * lastId - highest id read, the next chunk starts after it
+     */
+    public record ChunkResult(int scannedRows, int processedRows, long lastId) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.service.ConversationService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills chats.conversation_id for rows written before conversations existed.
+ * Each chunk covers an id range: missing conversations are inserted, then the range is
+ * updated with one join. When it completes, history reads switch to conversation_id.
+ */
+@Component
+public class ConversationBackfillJob extends ChunkedJob {
+
+    public static final String NAME = "backfill-conversations";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationService conversationService;
+
+    public ConversationBackfillJob(JobCheckpointStore checkpointStore, TransactionTemplate transactionTemplate,
+                                   JobConfig jobConfig, JdbcTemplate jdbcTemplate,
+                                   ConversationService conversationService) {
+        super(NAME, checkpointStore, transactionTemplate, jobConfig);
+        this.jdbcTemplate = jdbcTemplate;
+        this.conversationService = conversationService;
+    }
+
+    /**
+     * Rows still without a conversation
+     */
+    public long countPendingRows() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chats WHERE conversation_id IS NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    protected ChunkResult processChunk(long afterId, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM chats WHERE id > ? ORDER BY id LIMIT ?", Long.class, afterId, limit);
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, afterId);
+        }
+        long lastId = ids.get(ids.size() - 1);
+
+        // Pairs that appeared after V9 seeded the table (e.g. written by nodes without conversation support)
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO conversations (user_low, user_high) " +
+                "SELECT DISTINCT LEAST(chat_from, chat_to), GREATEST(chat_from, chat_to) FROM chats " +
+                "WHERE id > ? AND id <= ? AND conversation_id IS NULL",
+                afterId, lastId);
+
+        int updated = jdbcTemplate.update(
+                "UPDATE chats c JOIN conversations v " +
+                "ON v.user_low = LEAST(c.chat_from, c.chat_to) AND v.user_high = GREATEST(c.chat_from, c.chat_to) " +
+                "SET c.conversation_id = v.id, c.updated_at = c.updated_at " +
+                "WHERE c.id > ? AND c.id <= ? AND c.conversation_id IS NULL",
+                afterId, lastId);
+
+        return new ChunkResult(ids.size(), updated, lastId);
+    }
+
+    @Override
+    protected void onComplete() {
+        conversationService.refreshConversationReads();
+    }
+}
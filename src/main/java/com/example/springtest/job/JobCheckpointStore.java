@@ -0,0 +1,68 @@
+package com.example.springtest.job;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persists where each background job stopped, so a restart resumes instead of starting over
+ */
+@Repository
+@RequiredArgsConstructor
+public class JobCheckpointStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<JobCheckpoint> load(String jobName) {
+        List<JobCheckpoint> rows = jdbcTemplate.query(
+                "SELECT last_id, processed_rows, status, run_key FROM job_checkpoints WHERE job_name = ?",
+                (rs, rowNum) -> new JobCheckpoint(rs.getLong("last_id"), rs.getLong("processed_rows"),
+                        rs.getString("status"), rs.getString("run_key")),
+                jobName);
+        return rows.stream().findFirst();
+    }
+
+    public void save(String jobName, long lastId, long processedRows, String status, String runKey) {
+        jdbcTemplate.update(
+                "INSERT INTO job_checkpoints (job_name, last_id, processed_rows, status, run_key) VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE last_id = VALUES(last_id), processed_rows = VALUES(processed_rows), " +
+                "status = VALUES(status), run_key = VALUES(run_key)",
+                jobName, lastId, processedRows, status, runKey);
+    }
+
+    /**
+     * Claim a run of the job for this node. Locks the checkpoint row (SELECT ... FOR UPDATE) and marks it
+     * RUNNING, unless another node saved it as RUNNING within the last takeoverAfterMs; an older RUNNING
+     * row was left by a node that died. A COMPLETED checkpoint is reset so the run starts over.
+     * Must be called inside a transaction, which holds the row lock until the RUNNING mark commits.
+     * Return: false if the job is running elsewhere
+     */
+    public boolean claim(String jobName, long takeoverAfterMs) {
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO job_checkpoints (job_name, last_id, processed_rows, status) VALUES (?, 0, 0, 'IDLE')",
+                jobName);
+        Boolean runningElsewhere = jdbcTemplate.queryForObject(
+                "SELECT status = 'RUNNING' AND updated_at >= TIMESTAMPADD(MICROSECOND, ?, NOW(6)) " +
+                "FROM job_checkpoints WHERE job_name = ? FOR UPDATE",
+                Boolean.class, -takeoverAfterMs * 1000, jobName);
+        if (Boolean.TRUE.equals(runningElsewhere)) {
+            return false;
+        }
+        jdbcTemplate.update(
+                "UPDATE job_checkpoints SET " +
+                "last_id = CASE WHEN status = 'COMPLETED' THEN 0 ELSE last_id END, " +
+                "processed_rows = CASE WHEN status = 'COMPLETED' THEN 0 ELSE processed_rows END, " +
+                "status = 'RUNNING', updated_at = CURRENT_TIMESTAMP WHERE job_name = ?",
+                jobName);
+        return true;
+    }
+
+    /**
+     * runKey - what the run was for (see ChunkedJob.runKey), null for jobs without a target
+     */
+    public record JobCheckpoint(long lastId, long processedRows, String status, String runKey) {
+    }
+}
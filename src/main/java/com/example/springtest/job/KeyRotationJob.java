@@ -0,0 +1,168 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.service.EncryptionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves encrypted messages onto the active key (chat.encryption.active-key-id).
+ * Rows on an older key id, legacy Base64 rows and envelopes written before key ids were tracked
+ * are decrypted and re-sealed in throttled chunks while normal traffic keeps flowing.
+ * Both tables are walked in one id order: chats_archive holds the id prefix (see ChatArchivalJob),
+ * so its rows come first and chats follows once no archived row is left above the checkpoint.
+ */
+@Component
+public class KeyRotationJob extends ChunkedJob {
+
+    public static final String NAME = "rotate-encryption-key";
+
+    private static final String ARCHIVE_TABLE = "chats_archive";
+    private static final String HOT_TABLE = "chats";
+
+    private static final String PENDING_CONDITION = "is_encrypted = TRUE AND (key_id IS NULL OR key_id <> ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EncryptionService encryptionService;
+    private final EncryptionConfig encryptionConfig;
+
+    private volatile int targetKeyId;
+    private volatile long pendingAtStart;
+
+    public KeyRotationJob(JobCheckpointStore checkpointStore, TransactionTemplate transactionTemplate,
+                          JobConfig jobConfig, JdbcTemplate jdbcTemplate,
+                          EncryptionService encryptionService, EncryptionConfig encryptionConfig) {
+        super(NAME, checkpointStore, transactionTemplate, jobConfig);
+        this.jdbcTemplate = jdbcTemplate;
+        this.encryptionService = encryptionService;
+        this.encryptionConfig = encryptionConfig;
+    }
+
+    @Override
+    public synchronized boolean start() {
+        if (!encryptionConfig.isEnvelopeFormat()) {
+            throw new IllegalStateException("Key rotation needs chat.encryption.envelope-format=true");
+        }
+        return super.start();
+    }
+
+    /**
+     * Rows not yet on the active key, in chats and chats_archive
+     */
+    public long countPendingRows() {
+        int activeKeyId = encryptionService.activeKeyId();
+        return countPendingRows(ARCHIVE_TABLE, activeKeyId) + countPendingRows(HOT_TABLE, activeKeyId);
+    }
+
+    /**
+     * A rotation stopped on its way to another key starts over, since rows it already passed may not be on the active key
+     */
+    @Override
+    protected String runKey() {
+        return "key-" + encryptionService.activeKeyId();
+    }
+
+    @Override
+    protected void onStart() {
+        targetKeyId = encryptionService.activeKeyId();
+        pendingAtStart = countPendingRows();
+    }
+
+    @Override
+    protected Long remainingRows() {
+        return isRunning() ? Math.max(0, pendingAtStart - rowsThisRun()) : null;
+    }
+
+    @Override
+    protected ChunkResult processChunk(long afterId, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        List<StoredMessage> messages = new ArrayList<>(limit);
+        String table = ARCHIVE_TABLE;
+        selectPending(table, afterId, limit, ids, messages);
+        if (ids.isEmpty()) {
+            table = HOT_TABLE;
+            selectPending(table, afterId, limit, ids, messages);
+        }
+
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, afterId);
+        }
+
+        List<String> plainTexts = encryptionService.decryptMessagesForJob(messages);
+        List<byte[]> envelopes = encryptionService.encryptAllToEnvelopesForJob(plainTexts);
+
+        List<Object[]> updates = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            updates.add(new Object[]{envelopes.get(i), targetKeyId, ids.get(i), targetKeyId});
+        }
+
+        // A user edit in the meantime already wrote the active key, so the key guard skips that row
+        int[] counts = reseal(table, updates);
+
+        int updated = 0;
+        for (int count : counts) {
+            updated += count < 0 ? 1 : count;
+        }
+        if (HOT_TABLE.equals(table)) {
+            // The archival job may have moved some of these rows out of chats after they were read
+            updated += resealMoved(ids, updates);
+        }
+        return new ChunkResult(ids.size(), updated, ids.get(ids.size() - 1));
+    }
+
+    /**
+     * Re-seal chunk rows that now live in chats_archive; a range scan on its primary key, usually empty.
+     * The locking read sees rows the archival job committed after this transaction's snapshot was taken.
+     */
+    private int resealMoved(List<Long> ids, List<Object[]> updates) {
+        List<Long> movedIds = jdbcTemplate.queryForList(
+                "SELECT id FROM " + ARCHIVE_TABLE + " WHERE id BETWEEN ? AND ? AND " + PENDING_CONDITION + " FOR UPDATE",
+                Long.class, ids.get(0), ids.get(ids.size() - 1), targetKeyId);
+        if (movedIds.isEmpty()) {
+            return 0;
+        }
+        Set<Long> moved = new HashSet<>(movedIds);
+        List<Object[]> movedUpdates = new ArrayList<>(moved.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (moved.contains(ids.get(i))) {
+                movedUpdates.add(updates.get(i));
+            }
+        }
+        int updated = 0;
+        for (int count : reseal(ARCHIVE_TABLE, movedUpdates)) {
+            updated += count < 0 ? 1 : count;
+        }
+        return updated;
+    }
+
+    private long countPendingRows(String table, int activeKeyId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + PENDING_CONDITION, Long.class, activeKeyId);
+        return count != null ? count : 0;
+    }
+
+    private void selectPending(String table, long afterId, int limit, List<Long> ids, List<StoredMessage> messages) {
+        jdbcTemplate.query(
+                "SELECT id, message, message_data, is_encrypted FROM " + table + " " +
+                "WHERE id > ? AND " + PENDING_CONDITION + " ORDER BY id LIMIT ?",
+                rs -> {
+                    ids.add(rs.getLong("id"));
+                    messages.add(new StoredMessage(rs.getString("message"), rs.getBytes("message_data"), true));
+                },
+                afterId, targetKeyId, limit);
+    }
+
+    private int[] reseal(String table, List<Object[]> updates) {
+        return jdbcTemplate.batchUpdate(
+                "UPDATE " + table + " SET message = NULL, message_data = ?, key_id = ?, updated_at = updated_at " +
+                "WHERE id = ? AND (key_id IS NULL OR key_id <> ?)",
+                updates);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.service.EncryptionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Encrypts plain text messages written before encryption was introduced.
+ * Walks unencrypted rows by id, encrypts each chunk in parallel and writes it back with one JDBC batch.
+ * Like KeyRotationJob it covers chats_archive first (the id prefix) and then chats, so plain text
+ * archived before the job finished is encrypted too.
+ */
+@Component
+public class MessageEncryptionJob extends ChunkedJob {
+
+    public static final String NAME = "encrypt-existing-messages";
+
+    private static final String ARCHIVE_TABLE = "chats_archive";
+    private static final String HOT_TABLE = "chats";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EncryptionService encryptionService;
+    private final EncryptionConfig encryptionConfig;
+
+    public MessageEncryptionJob(JobCheckpointStore checkpointStore, TransactionTemplate transactionTemplate,
+                                JobConfig jobConfig, JdbcTemplate jdbcTemplate,
+                                EncryptionService encryptionService, EncryptionConfig encryptionConfig) {
+        super(NAME, checkpointStore, transactionTemplate, jobConfig);
+        this.jdbcTemplate = jdbcTemplate;
+        this.encryptionService = encryptionService;
+        this.encryptionConfig = encryptionConfig;
+    }
+
+    /**
+     * Messages still stored as plain text, in chats and chats_archive
+     */
+    public long countPendingRows() {
+        return countPendingRows(ARCHIVE_TABLE) + countPendingRows(HOT_TABLE);
+    }
+
+    @Override
+    protected ChunkResult processChunk(long afterId, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        List<String> plainTexts = new ArrayList<>(limit);
+        String table = ARCHIVE_TABLE;
+        selectPending(table, afterId, limit, ids, plainTexts);
+        if (ids.isEmpty()) {
+            table = HOT_TABLE;
+            selectPending(table, afterId, limit, ids, plainTexts);
+        }
+
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, afterId);
+        }
+
+        List<Object[]> updates = new ArrayList<>(ids.size());
+        if (encryptionConfig.isEnvelopeFormat()) {
+            Integer keyId = encryptionService.activeKeyId();
+            List<byte[]> envelopes = encryptionService.encryptAllToEnvelopesForJob(plainTexts);
+            for (int i = 0; i < ids.size(); i++) {
+                updates.add(new Object[]{null, envelopes.get(i), keyId, ids.get(i)});
+            }
+        } else {
+            List<String> encrypted = encryptionService.encryptAllForJob(plainTexts);
+            for (int i = 0; i < ids.size(); i++) {
+                updates.add(new Object[]{encrypted.get(i), null, null, ids.get(i)});
+            }
+        }
+
+        int updated = write(table, updates);
+        if (HOT_TABLE.equals(table)) {
+            // The archival job may have moved some of these rows out of chats after they were read
+            updated += writeMoved(ids, updates);
+        }
+        return new ChunkResult(ids.size(), updated, ids.get(ids.size() - 1));
+    }
+
+    private long countPendingRows(String table) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE is_encrypted = FALSE", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private void selectPending(String table, long afterId, int limit, List<Long> ids, List<String> plainTexts) {
+        jdbcTemplate.query(
+                "SELECT id, message FROM " + table + " WHERE is_encrypted = FALSE AND id > ? ORDER BY id LIMIT ?",
+                rs -> {
+                    ids.add(rs.getLong("id"));
+                    plainTexts.add(rs.getString("message"));
+                },
+                afterId, limit);
+    }
+
+    /**
+     * Encrypt chunk rows that now live in chats_archive; the locking read sees rows the archival job
+     * committed after this transaction's snapshot was taken
+     */
+    private int writeMoved(List<Long> ids, List<Object[]> updates) {
+        Set<Long> moved = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM " + ARCHIVE_TABLE + " WHERE id BETWEEN ? AND ? AND is_encrypted = FALSE FOR UPDATE",
+                Long.class, ids.get(0), ids.get(ids.size() - 1)));
+        if (moved.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> movedUpdates = new ArrayList<>(moved.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (moved.contains(ids.get(i))) {
+                movedUpdates.add(updates.get(i));
+            }
+        }
+        return write(ARCHIVE_TABLE, movedUpdates);
+    }
+
+    /**
+     * The is_encrypted guard skips rows that were rewritten by a user edit in the meantime;
+     * updated_at is kept so the migration does not show messages as edited
+     */
+    private int write(String table, List<Object[]> updates) {
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE " + table + " SET message = ?, message_data = ?, key_id = ?, is_encrypted = TRUE, updated_at = updated_at " +
+                "WHERE id = ? AND is_encrypted = FALSE",
+                updates);
+
+        int updated = 0;
+        for (int count : counts) {
+            // Batched statements may report SUCCESS_NO_INFO (-2) instead of a row count
+            updated += count < 0 ? 1 : count;
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.crypto.BlindIndex;
+import com.example.springtest.repository.ChatSearchTokenRepository;
+import com.example.springtest.service.EncryptionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds chat_search_tokens for messages written before search existed (or after a new index key).
+ * Each chunk decrypts its messages in parallel and rewrites the tokens of its id range.
+ * Both tables are walked in one id order: chats_archive holds the id prefix (see ChatArchivalJob),
+ * so its rows come first and chats follows once no archived row is left above the checkpoint.
+ */
+@Component
+public class SearchIndexBackfillJob extends ChunkedJob {
+
+    public static final String NAME = "backfill-search-index";
+
+    private static final String ARCHIVE_TABLE = "chats_archive";
+    private static final String HOT_TABLE = "chats";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EncryptionService encryptionService;
+    private final BlindIndex blindIndex;
+    private final ChatSearchTokenRepository tokenRepository;
+
+    public SearchIndexBackfillJob(JobCheckpointStore checkpointStore, TransactionTemplate transactionTemplate,
+                                  JobConfig jobConfig, JdbcTemplate jdbcTemplate, EncryptionService encryptionService,
+                                  BlindIndex blindIndex, ChatSearchTokenRepository tokenRepository) {
+        super(NAME, checkpointStore, transactionTemplate, jobConfig);
+        this.jdbcTemplate = jdbcTemplate;
+        this.encryptionService = encryptionService;
+        this.blindIndex = blindIndex;
+        this.tokenRepository = tokenRepository;
+    }
+
+    @Override
+    protected ChunkResult processChunk(long afterId, int limit) {
+        List<long[]> chats = new ArrayList<>(limit);
+        List<StoredMessage> messages = new ArrayList<>(limit);
+        selectChunk(ARCHIVE_TABLE, afterId, limit, chats, messages);
+        if (chats.isEmpty()) {
+            selectChunk(HOT_TABLE, afterId, limit, chats, messages);
+            if (!chats.isEmpty()) {
+                // The archival job may have moved rows of this range out of chats after the archive read
+                selectMoved(afterId, chats.get(chats.size() - 1)[0], chats, messages);
+            }
+        }
+
+        if (chats.isEmpty()) {
+            return new ChunkResult(0, 0, afterId);
+        }
+        long lastId = chats.stream().mapToLong(chat -> chat[0]).max().getAsLong();
+
+        List<String> plainTexts = encryptionService.decryptMessagesForJob(messages);
+        List<ChatSearchTokenRepository.ChatTokens> indexed = new ArrayList<>(chats.size());
+        for (int i = 0; i < chats.size(); i++) {
+            long[] chat = chats.get(i);
+            indexed.add(new ChatSearchTokenRepository.ChatTokens(chat[0], chat[1], chat[2], blindIndex.tokens(plainTexts.get(i))));
+        }
+        tokenRepository.deleteByChatIdRange(afterId, lastId);
+        tokenRepository.insertAll(indexed);
+        return new ChunkResult(chats.size(), chats.size(), lastId);
+    }
+
+    /**
+     * Locking read: an edit of these rows waits until their tokens are rewritten here
+     */
+    private void selectChunk(String table, long afterId, int limit, List<long[]> chats, List<StoredMessage> messages) {
+        selectRows("SELECT id, chat_from, chat_to, message, message_data, is_encrypted FROM " + table + " " +
+                "WHERE id > ? ORDER BY id LIMIT ? FOR UPDATE", chats, messages, afterId, limit);
+    }
+
+    /**
+     * Chunk rows that now live in chats_archive; a range scan on its primary key, usually empty.
+     * The locking read sees rows the archival job committed after this transaction's snapshot was taken.
+     */
+    private void selectMoved(long afterId, long lastId, List<long[]> chats, List<StoredMessage> messages) {
+        selectRows("SELECT id, chat_from, chat_to, message, message_data, is_encrypted FROM " + ARCHIVE_TABLE + " " +
+                "WHERE id > ? AND id <= ? FOR UPDATE", chats, messages, afterId, lastId);
+    }
+
+    private void selectRows(String sql, List<long[]> chats, List<StoredMessage> messages, Object... args) {
+        jdbcTemplate.query(sql,
+                rs -> {
+                    chats.add(new long[]{rs.getLong("id"), rs.getLong("chat_from"), rs.getLong("chat_to")});
+                    messages.add(new StoredMessage(rs.getString("message"), rs.getBytes("message_data"),
+                            rs.getBoolean("is_encrypted")));
+                },
+                args);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.springtest.job;
+
+import com.example.springtest.crypto.EncryptedMessage;
+import lombok.Value;
+
+/**
+ * Message columns of a chats row as read by the background jobs
+ */
+@Value
+class StoredMessage implements EncryptedMessage {
+    String message;
+    byte[] messageData;
+    Boolean isEncrypted;
+}
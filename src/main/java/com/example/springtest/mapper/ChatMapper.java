@@ -1,6 +1,7 @@
 package com.example.springtest.mapper;
 
 import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.ChatRow;
 import com.example.springtest.dto.UserSummaryResponse;
 import com.example.springtest.entity.Chat;
 import com.example.springtest.entity.User;
@@ -8,6 +9,9 @@ import com.example.springtest.service.EncryptionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class ChatMapper {
@@ -20,8 +24,68 @@ public class ChatMapper {
         }
         
         // Decrypt message before returning
-        String decryptedMessage = encryptionService.decrypt(chat.getMessage());
+        String decryptedMessage = encryptionService.decryptMessage(chat);
         
+        return toResponse(chat, decryptedMessage);
+    }
+
+    /**
+     * Map a chat that was just written, with its plain text and participants already at hand
+     * (no decryption, and the chatFrom/chatTo references are not loaded)
+     */
+    public ChatResponse toResponse(Chat chat, String plainText, UserSummaryResponse chatFrom, UserSummaryResponse chatTo) {
+        return new ChatResponse(
+                chat.getId(),
+                chat.getUuid(),
+                plainText,
+                chatFrom.getId(),
+                chatTo.getId(),
+                chatFrom,
+                chatTo,
+                chat.getCreatedAt(),
+                chat.getUpdatedAt()
+        );
+    }
+
+    /**
+     * Map a list of chats, decrypting the messages as one batch (parallel for large lists)
+     * Order of the input list is kept
+     */
+    public List<ChatResponse> toResponses(List<Chat> chats) {
+        List<String> decryptedMessages = encryptionService.decryptMessages(chats);
+
+        List<ChatResponse> responses = new ArrayList<>(chats.size());
+        for (int i = 0; i < chats.size(); i++) {
+            responses.add(toResponse(chats.get(i), decryptedMessages.get(i)));
+        }
+        return responses;
+    }
+
+    /**
+     * Map projection rows (see ChatRow); needs no further queries
+     */
+    public List<ChatResponse> toResponsesFromRows(List<ChatRow> rows) {
+        List<String> decryptedMessages = encryptionService.decryptMessages(rows);
+
+        List<ChatResponse> responses = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ChatRow row = rows.get(i);
+            responses.add(new ChatResponse(
+                    row.getId(),
+                    row.getUuid(),
+                    decryptedMessages.get(i),
+                    row.getChatFromId(),
+                    row.getChatToId(),
+                    new UserSummaryResponse(row.getChatFromId(), row.getChatFromUuid(), row.getChatFromName()),
+                    new UserSummaryResponse(row.getChatToId(), row.getChatToUuid(), row.getChatToName()),
+                    row.getCreatedAt(),
+                    row.getUpdatedAt()
+            ));
+        }
+        return responses;
+    }
+
+    private ChatResponse toResponse(Chat chat, String decryptedMessage) {
         return new ChatResponse(
                 chat.getId(),
                 chat.getUuid(),
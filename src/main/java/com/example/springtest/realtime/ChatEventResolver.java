@@ -0,0 +1,51 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.mapper.ChatMapper;
+import com.example.springtest.repository.ChatRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns outbox events into the events clients receive. New and edited messages are stored as chat
+ * references (ChatEvents.newMessageRef / editMessageRef); their chats are loaded and decrypted here
+ * in one query per batch. Other events pass through unchanged.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatEventResolver {
+
+    private final ChatRepository chatRepository;
+    private final ChatMapper chatMapper;
+
+    /**
+     * Same order and size as the input; null where the referenced chat was deleted meanwhile
+     * (its delete-message event follows). Call in a read-write transaction, so a chat that was
+     * just written is read from the primary rather than a lagging replica.
+     */
+    public List<RealtimeEvent> resolve(List<RealtimeEvent> events) {
+        List<Long> chatIds = events.stream().map(ChatEvents::chatRef).filter(Objects::nonNull).distinct().toList();
+        Map<Long, ChatResponse> chats = chatIds.isEmpty() ? Map.of()
+                : chatMapper.toResponsesFromRows(chatRepository.findRowsByIdIn(chatIds)).stream()
+                        .collect(Collectors.toMap(ChatResponse::getId, Function.identity()));
+
+        List<RealtimeEvent> resolved = new ArrayList<>(events.size());
+        for (RealtimeEvent event : events) {
+            Long chatId = ChatEvents.chatRef(event);
+            if (chatId == null) {
+                resolved.add(event);
+            } else {
+                ChatResponse chat = chats.get(chatId);
+                resolved.add(chat != null ? ChatEvents.resolve(event, chat) : null);
+            }
+        }
+        return resolved;
+    }
+}
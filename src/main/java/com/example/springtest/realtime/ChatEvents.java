@@ -0,0 +1,86 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.dto.ChatResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Realtime events announcing chat changes; each goes to the recipient's channel only.
+ * New and edited messages are written to the outbox as references (chat id only, see
+ * ChatEventResolver), so message text is never stored outside the encrypted chats table.
+ */
+public final class ChatEvents {
+
+    static final String NEW_MESSAGE = "new-message";
+    static final String EDIT_MESSAGE = "edit-message";
+    private static final String CHAT_REF = "chatRef";
+
+    private ChatEvents() {
+    }
+
+    /**
+     * Outbox form of newMessage: resolved to the full event when published
+     */
+    public static RealtimeEvent newMessageRef(Long chatId, String chatToUuid) {
+        return RealtimeEvent.toUser(chatToUuid, NEW_MESSAGE, Map.of(CHAT_REF, chatId));
+    }
+
+    /**
+     * Outbox form of editMessage: resolved to the full event (with the current text) when published
+     */
+    public static RealtimeEvent editMessageRef(Long chatId, String chatToUuid) {
+        return RealtimeEvent.toUser(chatToUuid, EDIT_MESSAGE, Map.of(CHAT_REF, chatId));
+    }
+
+    /**
+     * Chat id of a reference event, null for events that are published as stored
+     */
+    static Long chatRef(RealtimeEvent event) {
+        if (event.data() == null || event.data().size() != 1 || !(event.data().get(CHAT_REF) instanceof Number id)) {
+            return null;
+        }
+        return id.longValue();
+    }
+
+    /**
+     * Full event of a reference event, built from the chat as it is now
+     */
+    static RealtimeEvent resolve(RealtimeEvent reference, ChatResponse chat) {
+        return EDIT_MESSAGE.equals(reference.event()) ? editMessage(chat) : newMessage(chat);
+    }
+
+    public static RealtimeEvent newMessage(ChatResponse chat) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", chat.getId());
+        data.put("chatFromUuid", chat.getChatFrom().getUuid());
+        data.put("chatToUuid", chat.getChatTo().getUuid());
+        data.put("message", chat.getMessage());
+        data.put("senderName", chat.getChatFrom().getName());
+        // ISO strings; LocalDateTime does not serialize cleanly through Gson
+        data.put("createdAt", chat.getCreatedAt() != null ? chat.getCreatedAt().toString() : null);
+        return RealtimeEvent.toUser(chat.getChatTo().getUuid(), NEW_MESSAGE, data);
+    }
+
+    public static RealtimeEvent editMessage(ChatResponse chat) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", chat.getId());
+        data.put("messageId", chat.getId());
+        data.put("message", chat.getMessage());
+        data.put("action", EDIT_MESSAGE);
+        data.put("chatFromUuid", chat.getChatFrom().getUuid());
+        data.put("chatToUuid", chat.getChatTo().getUuid());
+        data.put("updatedAt", chat.getUpdatedAt() != null ? chat.getUpdatedAt().toString() : null);
+        return RealtimeEvent.toUser(chat.getChatTo().getUuid(), EDIT_MESSAGE, data);
+    }
+
+    public static RealtimeEvent deleteMessage(Long id, String chatFromUuid, String chatToUuid) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", id);
+        data.put("messageId", id);
+        data.put("action", "delete-message");
+        data.put("chatFromUuid", chatFromUuid);
+        data.put("chatToUuid", chatToUuid);
+        return RealtimeEvent.toUser(chatToUuid, "delete-message", data);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker (chat.realtime.breaker.*).
+ * - CLOSED: calls pass; the outcomes of the last window-size calls are kept, and once minimum-calls
+ *   are in, a failure rate at or above failure-rate-threshold opens the breaker
+ * - OPEN: calls are refused without touching the remote side, for open-duration-ms
+ * - HALF_OPEN: up to half-open-probes calls are let through; all succeeding closes the breaker,
+ *   any failing reopens it
+ * Outcomes of calls started before the last transition are ignored, so a slow call from the CLOSED
+ * state cannot close a breaker that opened meanwhile.
+ * Metrics: chat.realtime.breaker.state{name,state} (1 for the current state), and
+ * chat.realtime.breaker.transitions{name,to} / chat.realtime.breaker.rejected{name} counters.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * Returned by acquire() when the call must fail fast
+     */
+    public static final long REJECTED = -1;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final RealtimeConfig.Breaker config;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] window;
+    private int windowCalls;
+    private int windowFailures;
+    private int windowNext;
+
+    private volatile State state = State.CLOSED;
+    private long generation;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+    private final Counter rejected;
+
+    public CircuitBreaker(String name, RealtimeConfig.Breaker config, MeterRegistry meterRegistry) {
+        this(name, config, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, RealtimeConfig.Breaker config, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.name = name;
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.window = new boolean[Math.max(1, config.getWindowSize())];
+        for (State each : State.values()) {
+            Gauge.builder("chat.realtime.breaker.state", this, breaker -> breaker.state == each ? 1 : 0)
+                    .tags("name", name, "state", each.name().toLowerCase())
+                    .register(meterRegistry);
+            transitions.put(each, meterRegistry.counter("chat.realtime.breaker.transitions",
+                    "name", name, "to", each.name().toLowerCase()));
+        }
+        this.rejected = meterRegistry.counter("chat.realtime.breaker.rejected", "name", name);
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * Ask to make a call; returns a permit to hand back with the outcome, or REJECTED
+     */
+    public synchronized long acquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMs())) {
+                rejected.increment();
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= config.getHalfOpenProbes()) {
+                rejected.increment();
+                return REJECTED;
+            }
+            probesStarted++;
+        }
+        return generation;
+    }
+
+    public synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= config.getHalfOpenProbes()) {
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCalls >= config.getMinimumCalls()
+                    && windowFailures * 100 >= config.getFailureRateThreshold() * windowCalls) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCalls == window.length) {
+            if (window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowNext] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+    }
+
+    private void transition(State to) {
+        if (to == State.OPEN && state == State.HALF_OPEN) {
+            log.warn("Circuit breaker {} probe failed; failing fast for another {} ms", name, config.getOpenDurationMs());
+            openedAtNanos = nanoClock.getAsLong();
+        } else if (to == State.OPEN) {
+            log.warn("Circuit breaker {} opened ({} of the last {} calls failed); failing fast for {} ms",
+                    name, windowFailures, windowCalls, config.getOpenDurationMs());
+            openedAtNanos = nanoClock.getAsLong();
+        } else {
+            log.info("Circuit breaker {} is now {}", name, to);
+        }
+        state = to;
+        generation++;
+        windowCalls = 0;
+        windowFailures = 0;
+        windowNext = 0;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        transitions.get(to).increment();
+    }
+}
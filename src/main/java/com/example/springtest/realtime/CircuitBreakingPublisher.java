@@ -0,0 +1,56 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.exception.RealtimeDeliveryException;
+
+import java.util.List;
+
+/**
+ * Guards a remote publisher with a CircuitBreaker. While the breaker is open, calls fail at once
+ * with a retryable RealtimeDeliveryException: the delivery queue backs off and the outbox keeps
+ * the events, instead of every worker waiting out call-timeout-ms against an unhealthy service.
+ * Retryable failures (timeouts, network errors, 5xx) count against the breaker; a rejected event
+ * (4xx) means the service is up, so it counts as a healthy call.
+ */
+public class CircuitBreakingPublisher implements RealtimePublisher {
+
+    private final String name;
+    private final CircuitBreaker breaker;
+    private final RealtimePublisher delegate;
+
+    public CircuitBreakingPublisher(String name, CircuitBreaker breaker, RealtimePublisher delegate) {
+        this.name = name;
+        this.breaker = breaker;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void publish(RealtimeEvent event) {
+        call(() -> delegate.publish(event));
+    }
+
+    @Override
+    public void publishBatch(List<RealtimeEvent> events) {
+        call(() -> delegate.publishBatch(events));
+    }
+
+    private void call(Runnable call) {
+        long permit = breaker.acquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            throw new RealtimeDeliveryException("Circuit breaker " + name + " is " + breaker.state(), true);
+        }
+        try {
+            call.run();
+        } catch (RealtimeDeliveryException e) {
+            if (e.isRetryable()) {
+                breaker.onFailure(permit);
+            } else {
+                breaker.onSuccess(permit);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            breaker.onFailure(permit);
+            throw e;
+        }
+        breaker.onSuccess(permit);
+    }
+}
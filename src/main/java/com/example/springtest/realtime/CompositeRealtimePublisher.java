@@ -0,0 +1,27 @@
+package com.example.springtest.realtime;
+
+import java.util.List;
+
+/**
+ * Publishes to several publishers in order (publisher BOTH: in-process gateway first, then Pusher).
+ * A failure of a later publisher fails the event, so a retry may repeat it on the earlier ones
+ * (delivery is at-least-once anyway; events carry the message id for de-duplication).
+ */
+public class CompositeRealtimePublisher implements RealtimePublisher {
+
+    private final List<RealtimePublisher> publishers;
+
+    public CompositeRealtimePublisher(List<RealtimePublisher> publishers) {
+        this.publishers = List.copyOf(publishers);
+    }
+
+    @Override
+    public void publish(RealtimeEvent event) {
+        publishers.forEach(publisher -> publisher.publish(event));
+    }
+
+    @Override
+    public void publishBatch(List<RealtimeEvent> events) {
+        publishers.forEach(publisher -> publisher.publishBatch(events));
+    }
+}
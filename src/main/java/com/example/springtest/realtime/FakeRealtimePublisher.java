@@ -0,0 +1,76 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.exception.RealtimeDeliveryException;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for Pusher (publisher FAKE), so load tests and benchmarks run without network.
+ * Each call (one per batch) sleeps chat.realtime.fake.latency-ms, times out like a real call when
+ * that exceeds call-timeout-ms, and fails with probability error-rate. Settings are read on every
+ * call, so a test can degrade and heal the fake while traffic is running.
+ */
+public class FakeRealtimePublisher implements RealtimePublisher {
+
+    private final RealtimeConfig realtimeConfig;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+
+    public FakeRealtimePublisher(RealtimeConfig realtimeConfig) {
+        this.realtimeConfig = realtimeConfig;
+    }
+
+    @Override
+    public void publish(RealtimeEvent event) {
+        call(1);
+    }
+
+    @Override
+    public void publishBatch(List<RealtimeEvent> events) {
+        call(events.size());
+    }
+
+    /**
+     * Events accepted so far
+     */
+    public long published() {
+        return published.get();
+    }
+
+    /**
+     * Calls made so far, including failed ones
+     */
+    public long calls() {
+        return calls.get();
+    }
+
+    private void call(int events) {
+        RealtimeConfig.Fake fake = realtimeConfig.getFake();
+        long timeoutMs = realtimeConfig.getCallTimeoutMs();
+        calls.incrementAndGet();
+        if (fake.getLatencyMs() > timeoutMs) {
+            sleep(timeoutMs);
+            throw new RealtimeDeliveryException("Fake publisher timed out after " + timeoutMs + " ms", true);
+        }
+        sleep(fake.getLatencyMs());
+        if (fake.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < fake.getErrorRate()) {
+            throw new RealtimeDeliveryException("Injected fake publisher failure", fake.isErrorRetryable());
+        }
+        published.addAndGet(events);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RealtimeDeliveryException("Interrupted while publishing", true, e);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.repository.RealtimeOutboxRepository;
+import com.example.springtest.repository.RealtimeOutboxRepository.OutboxRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes realtime_outbox rows through the delivery queue.
+ * - Claims up to chat.realtime.outbox.batch-size due rows per transaction with FOR UPDATE SKIP LOCKED
+ *   and leases them for lease-ms, so any number of nodes can share the work without double-claiming
+ * - Resolves chat references to the events clients receive (ChatEventResolver), so message text is
+ *   loaded and decrypted only at publish time
+ * - Deletes rows once Pusher accepted them; failed rows are rescheduled with backoff, marked
+ *   failed after max-attempts and deleted after failed-retention-hours; rows the delivery queue turned
+ *   away (full or shutting down) are postponed without using up an attempt
+ * - Sleeps poll-interval-ms when idle, but wakes right after a local commit wrote new rows
+ * - Publishing is capped at max-events-per-second per node, independently of request traffic
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private final RealtimeOutboxRepository outboxRepository;
+    private final ChatEventResolver chatEventResolver;
+    private final RealtimeDeliveryQueue deliveryQueue;
+    private final RealtimeConfig realtimeConfig;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+    private final Semaphore wakeUps = new Semaphore(0);
+
+    private volatile boolean running;
+    private Thread thread;
+    private Counter published;
+    private Counter rescheduled;
+    private Counter postponed;
+    private Counter failed;
+
+    @PostConstruct
+    void registerMeters() {
+        published = meterRegistry.counter("chat.realtime.outbox.rows", "outcome", "published");
+        rescheduled = meterRegistry.counter("chat.realtime.outbox.rows", "outcome", "rescheduled");
+        postponed = meterRegistry.counter("chat.realtime.outbox.rows", "outcome", "postponed");
+        failed = meterRegistry.counter("chat.realtime.outbox.rows", "outcome", "failed");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!realtimeConfig.getOutbox().isRelayEnabled()) {
+            log.info("Realtime outbox relay is disabled on this node");
+            return;
+        }
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("outbox-relay").start(this::run);
+    }
+
+    @TransactionalEventListener
+    public void onEventsWritten(RealtimeOutbox.EventsWritten written) {
+        wakeUps.release();
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeFailed() {
+        int purged = outboxRepository.deleteFailedBefore(realtimeConfig.getOutbox().getFailedRetentionHours());
+        if (purged > 0) {
+            log.info("Deleted {} failed realtime outbox rows", purged);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(realtimeConfig.getOutbox().getLeaseMs());
+        }
+    }
+
+    private void run() {
+        RealtimeConfig.Outbox config = realtimeConfig.getOutbox();
+        while (running) {
+            try {
+                drain();
+                wakeUps.tryAcquire(config.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Realtime outbox relay failed; retrying in {} ms", config.getPollIntervalMs(), e);
+                try {
+                    Thread.sleep(config.getPollIntervalMs());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish batches until no due rows are left
+     */
+    void drain() throws InterruptedException {
+        RealtimeConfig.Outbox config = realtimeConfig.getOutbox();
+        long startNanos = System.nanoTime();
+        long rows = 0;
+        while (true) {
+            List<OutboxRow> claimed = transactionTemplate.execute(tx ->
+                    outboxRepository.claim(config.getBatchSize(), config.getLeaseMs(), owner));
+            if (claimed == null || claimed.isEmpty()) {
+                return;
+            }
+            publish(claimed, config);
+            rows += claimed.size();
+            if (claimed.size() < config.getBatchSize() || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            throttle(startNanos, rows, config.getMaxEventsPerSecond());
+        }
+    }
+
+    private void publish(List<OutboxRow> rows, RealtimeConfig.Outbox config) throws InterruptedException {
+        List<RealtimeEvent> events = transactionTemplate.execute(tx ->
+                chatEventResolver.resolve(rows.stream().map(OutboxRow::event).toList()));
+        Map<OutboxRow, CompletableFuture<Void>> deliveries = new LinkedHashMap<>();
+        List<Long> done = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxRow row = rows.get(i);
+            RealtimeEvent event = events.get(i);
+            if (row.event().data() == null) {
+                failed.increment();
+                outboxRepository.markFailed(row.id(), "unreadable payload");
+            } else if (event == null) {
+                // The chat was deleted before its event went out; the delete-message row follows
+                done.add(row.id());
+            } else {
+                deliveries.put(row, deliveryQueue.submit(event));
+            }
+        }
+
+        // Stop waiting well before the lease runs out; unfinished rows are published again after it
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getLeaseMs() / 2);
+        for (Map.Entry<OutboxRow, CompletableFuture<Void>> delivery : deliveries.entrySet()) {
+            OutboxRow row = delivery.getKey();
+            try {
+                delivery.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                done.add(row.id());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    // Queue full or shutting down: the row itself is the overflow store
+                    postponed.increment();
+                    outboxRepository.postpone(row.id(), deliveryQueue.backoffMs(row.attempts()));
+                } else {
+                    retryOrFail(row, e.getCause(), config);
+                }
+            } catch (TimeoutException e) {
+                log.warn("Outbox row {} still in flight; it will be retried after its lease", row.id());
+            }
+        }
+        outboxRepository.deleteByIdIn(done);
+        published.increment(done.size());
+    }
+
+    private void retryOrFail(OutboxRow row, Throwable error, RealtimeConfig.Outbox config) {
+        String message = error != null ? error.getMessage() : null;
+        if (row.attempts() >= config.getMaxAttempts()) {
+            failed.increment();
+            log.error("Giving up on outbox row {} ({} for {}) after {} attempts: {}",
+                    row.id(), row.event().event(), row.event().channel(), row.attempts(), message);
+            outboxRepository.markFailed(row.id(), message);
+        } else {
+            rescheduled.increment();
+            outboxRepository.reschedule(row.id(), deliveryQueue.backoffMs(row.attempts()), message);
+        }
+    }
+
+    private static void throttle(long startNanos, long rows, int maxEventsPerSecond) throws InterruptedException {
+        if (maxEventsPerSecond <= 0) {
+            return;
+        }
+        long expectedNanos = rows * TimeUnit.SECONDS.toNanos(1) / maxEventsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+}
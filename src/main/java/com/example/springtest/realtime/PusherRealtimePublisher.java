@@ -0,0 +1,30 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.service.PusherService;
+import com.pusher.rest.data.Event;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Publishes through the hosted Pusher service; batches become Pusher batch triggers
+ */
+@Component
+@RequiredArgsConstructor
+public class PusherRealtimePublisher implements RealtimePublisher {
+
+    private final PusherService pusherService;
+
+    @Override
+    public void publish(RealtimeEvent event) {
+        pusherService.triggerEvent(event.channel(), event.event(), event.data());
+    }
+
+    @Override
+    public void publishBatch(List<RealtimeEvent> events) {
+        pusherService.triggerBatch(events.stream()
+                .map(event -> new Event(event.channel(), event.event(), event.data()))
+                .toList());
+    }
+}
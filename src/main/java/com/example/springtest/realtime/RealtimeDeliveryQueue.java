@@ -0,0 +1,283 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.exception.RealtimeDeliveryException;
+import com.example.springtest.service.PusherService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers realtime events off the request thread.
+ * - Bounded queue; a full queue drops or blocks for chat.realtime.block-timeout-ms (chat.realtime.overflow-policy).
+ *   Events that must survive an overflow go through realtime_outbox, whose relay retries rejected rows.
+ * - chat.realtime.workers virtual threads make the blocking RealtimePublisher calls; each carries up to
+ *   chat.realtime.batch.max-size events collected for at most chat.realtime.batch.max-wait-ms
+ * - Network errors and 5xx responses are retried with full-jitter exponential backoff
+ * - On shutdown, queued and retrying events get chat.realtime.shutdown-timeout-ms to go out;
+ *   whatever is left is reported as dropped
+ * Callers get a future that completes once the publisher accepted the event or delivery gave up.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RealtimeDeliveryQueue {
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final RealtimeConfig realtimeConfig;
+    private final RealtimePublisher realtimePublisher;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<Delivery> retrying = ConcurrentHashMap.newKeySet();
+
+    private BlockingQueue<Delivery> queue;
+    private ExecutorService workers;
+    private ScheduledExecutorService retryTimer;
+    private volatile boolean accepting;
+    private volatile boolean stopped;
+
+    private Timer deliveryTimer;
+    private DistributionSummary batchSizes;
+    private Counter delivered;
+    private Counter retried;
+    private Counter failed;
+    private Counter dropped;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, realtimeConfig.getQueueCapacity()));
+
+        meterRegistry.gauge("chat.realtime.queue.size", queue, BlockingQueue::size);
+        deliveryTimer = meterRegistry.timer("chat.realtime.delivery");
+        batchSizes = meterRegistry.summary("chat.realtime.batch.size");
+        delivered = meterRegistry.counter("chat.realtime.events", "outcome", "delivered");
+        retried = meterRegistry.counter("chat.realtime.events", "outcome", "retried");
+        failed = meterRegistry.counter("chat.realtime.events", "outcome", "failed");
+        dropped = meterRegistry.counter("chat.realtime.events", "outcome", "dropped");
+
+        retryTimer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("realtime-retry").factory());
+        workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("realtime-", 0).factory());
+        accepting = true;
+        for (int i = 0; i < Math.max(1, realtimeConfig.getWorkers()); i++) {
+            workers.submit(this::work);
+        }
+    }
+
+    /**
+     * Queue an event for delivery; never waits longer than block-timeout-ms (BLOCK policy)
+     */
+    public CompletableFuture<Void> submit(RealtimeEvent event) {
+        Delivery delivery = new Delivery(event, new CompletableFuture<>(), 1);
+        if (!accepting) {
+            reject(delivery, "realtime delivery is shut down");
+            return delivery.future();
+        }
+        if (!queue.offer(delivery)) {
+            overflow(delivery, true);
+        }
+        return delivery.future();
+    }
+
+    /**
+     * Events waiting in the queue (not counting retries waiting for their backoff)
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    private void overflow(Delivery delivery, boolean mayBlock) {
+        switch (realtimeConfig.getOverflowPolicy()) {
+            case DROP -> reject(delivery, "realtime queue is full");
+            case BLOCK -> {
+                if (!mayBlock || !offerWithTimeout(delivery)) {
+                    reject(delivery, "realtime queue is full");
+                }
+            }
+        }
+    }
+
+    private boolean offerWithTimeout(Delivery delivery) {
+        try {
+            return queue.offer(delivery, realtimeConfig.getBlockTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(Delivery delivery, String reason) {
+        dropped.increment();
+        log.warn("Dropping realtime event {} for {}: {}", delivery.event().event(), delivery.event().channel(), reason);
+        delivery.future().completeExceptionally(new RejectedExecutionException(reason));
+    }
+
+    private void work() {
+        while (!stopped) {
+            try {
+                Delivery first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    deliver(collectBatch(first));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Realtime delivery worker error", e);
+            }
+        }
+    }
+
+    /**
+     * Micro-batch: after the first event, wait up to batch.max-wait-ms for more, until batch.max-size
+     */
+    private List<Delivery> collectBatch(Delivery first) throws InterruptedException {
+        int maxSize = Math.max(1, Math.min(realtimeConfig.getBatch().getMaxSize(), PusherService.MAX_BATCH_EVENTS));
+        List<Delivery> batch = new ArrayList<>(maxSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(realtimeConfig.getBatch().getMaxWaitMs());
+        while (batch.size() < maxSize) {
+            queue.drainTo(batch, maxSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxSize || remaining <= 0) {
+                break;
+            }
+            Delivery next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * One publisher call per batch (one HTTP request with Pusher). Pusher accepts or rejects a batch as a
+     * whole, so a rejected batch (4xx) is re-sent event by event: only the invalid event fails, the others still go out.
+     */
+    private void deliver(List<Delivery> batch) {
+        if (batch.size() == 1) {
+            deliver(batch.get(0));
+            return;
+        }
+        List<RealtimeEvent> events = batch.stream().map(Delivery::event).toList();
+        try {
+            deliveryTimer.record(() -> realtimePublisher.publishBatch(events));
+            batchSizes.record(batch.size());
+            batch.forEach(this::complete);
+        } catch (RealtimeDeliveryException e) {
+            if (e.isRetryable()) {
+                batch.forEach(delivery -> retryOrFail(delivery, e));
+            } else {
+                log.warn("A batch of {} events was rejected, sending them one by one: {}", batch.size(), e.getMessage());
+                batch.forEach(this::deliver);
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(delivery -> fail(delivery, e));
+        }
+    }
+
+    private void deliver(Delivery delivery) {
+        RealtimeEvent event = delivery.event();
+        try {
+            deliveryTimer.record(() -> realtimePublisher.publish(event));
+            batchSizes.record(1);
+            complete(delivery);
+        } catch (RealtimeDeliveryException e) {
+            retryOrFail(delivery, e);
+        } catch (RuntimeException e) {
+            fail(delivery, e);
+        }
+    }
+
+    private void complete(Delivery delivery) {
+        delivered.increment();
+        delivery.future().complete(null);
+    }
+
+    private void retryOrFail(Delivery delivery, RealtimeDeliveryException e) {
+        if (e.isRetryable() && delivery.attempt() < realtimeConfig.getMaxAttempts() && !stopped) {
+            scheduleRetry(delivery.nextAttempt());
+        } else {
+            fail(delivery, e);
+        }
+    }
+
+    private void scheduleRetry(Delivery delivery) {
+        retried.increment();
+        retrying.add(delivery);
+        long delayMs = backoffMs(delivery.attempt() - 1);
+        log.debug("Retrying realtime event {} for {} in {} ms (attempt {})",
+                delivery.event().event(), delivery.event().channel(), delayMs, delivery.attempt());
+        retryTimer.schedule(() -> {
+            if (retrying.remove(delivery) && !queue.offer(delivery)) {
+                overflow(delivery, false);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Full jitter: uniform in [0, min(max, base * 2^(failures - 1))]
+     */
+    long backoffMs(int failures) {
+        long ceiling = realtimeConfig.getRetryBaseDelayMs() << Math.min(Math.max(failures - 1, 0), 20);
+        ceiling = Math.min(ceiling, realtimeConfig.getRetryMaxDelayMs());
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void fail(Delivery delivery, RuntimeException e) {
+        failed.increment();
+        log.error("Giving up on realtime event {} for {} after {} attempt(s)",
+                delivery.event().event(), delivery.event().channel(), delivery.attempt(), e);
+        delivery.future().completeExceptionally(e);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + realtimeConfig.getShutdownTimeoutMs();
+        while ((!queue.isEmpty() || !retrying.isEmpty()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(IDLE_POLL_MS / 2);
+        }
+        stopped = true;
+        retryTimer.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(IDLE_POLL_MS * 2, TimeUnit.MILLISECONDS);
+
+        List<Delivery> left = new ArrayList<>(retrying);
+        queue.drainTo(left);
+        for (Delivery delivery : left) {
+            reject(delivery, "shut down before delivery");
+        }
+        if (!left.isEmpty()) {
+            log.warn("{} realtime events were not delivered before shutdown", left.size());
+        }
+    }
+
+    private record Delivery(RealtimeEvent event, CompletableFuture<Void> future, int attempt) {
+
+        Delivery nextAttempt() {
+            return new Delivery(event, future, attempt + 1);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.springtest.realtime;
+
+import java.util.Map;
+
+/**
+ * One event for one channel, as handed to Pusher
+ */
+public record RealtimeEvent(String channel, String event, Map<String, Object> data) {
+
+    /**
+     * Event on a user's own channel (chat-{uuid})
+     */
+    public static RealtimeEvent toUser(String userUuid, String event, Map<String, Object> data) {
+        return new RealtimeEvent("chat-" + userUuid, event, data);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process realtime gateway: serves the same chat-{uuid} channels and event names as Pusher to
+ * clients connected to this node (SSE, see RealtimeController).
+ * - Subscriptions: channel -> copy-on-write set of connections; publishing only reads, without locks
+ * - Each connection has a bounded send queue (chat.realtime.gateway.send-queue-capacity) drained by
+ *   at most one virtual thread at a time, so a slow socket never delays other subscribers
+ * - A connection whose queue is full is a slow consumer and is disconnected; the client reconnects
+ *   and catches up from the inbox
+ * Events reach only the clients of the node that publishes them; with several nodes, run publisher
+ * BOTH (Pusher covers the rest) or route all realtime clients to the relay's node.
+ */
+@Slf4j
+@Component
+public class RealtimeGateway implements RealtimePublisher {
+
+    private final RealtimeConfig realtimeConfig;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Set<Connection>> channels = new ConcurrentHashMap<>();
+    private final Supplier<Set<Connection>> subscriberSets;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("realtime-gateway-", 0).factory());
+
+    private final Timer deliveryLatency;
+    private final Counter slowConsumers;
+
+    /**
+     * Where a connection's frames are written (an SseEmitter in production)
+     */
+    public interface EventSink {
+
+        void send(String event, String data) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        void close();
+    }
+
+    public RealtimeGateway(RealtimeConfig realtimeConfig, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(realtimeConfig, objectMapper, meterRegistry, CopyOnWriteArraySet::new);
+    }
+
+    RealtimeGateway(RealtimeConfig realtimeConfig, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                    Supplier<Set<Connection>> subscriberSets) {
+        this.subscriberSets = subscriberSets;
+        this.realtimeConfig = realtimeConfig;
+        this.objectMapper = objectMapper;
+        meterRegistry.gauge("chat.realtime.gateway.connections", connectionCount);
+        this.deliveryLatency = meterRegistry.timer("chat.realtime.gateway.delivery");
+        this.slowConsumers = meterRegistry.counter("chat.realtime.gateway.slow.consumers");
+    }
+
+    /**
+     * Register a connection for one channel; it receives every event published from now on
+     */
+    public Connection subscribe(String channel, EventSink sink) {
+        Connection connection = new Connection(channel, sink, realtimeConfig.getGateway().getSendQueueCapacity());
+        // Add inside the map operation: a concurrent disconnect may drop the channel's set as it empties,
+        // and a connection added to that set afterwards would never receive anything
+        channels.compute(channel, (key, connections) -> {
+            Set<Connection> subscribers = connections != null ? connections : subscriberSets.get();
+            subscribers.add(connection);
+            return subscribers;
+        });
+        connectionCount.incrementAndGet();
+        return connection;
+    }
+
+    /**
+     * Remove a connection and close its sink; safe to call more than once
+     */
+    public void disconnect(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        channels.computeIfPresent(connection.channel, (key, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+        connectionCount.decrementAndGet();
+        connection.queue.clear();
+        connection.sink.close();
+    }
+
+    public int connections() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Fan an event out to the channel's connections; never blocks on a client
+     */
+    @Override
+    public void publish(RealtimeEvent event) {
+        Set<Connection> subscribers = channels.get(event.channel());
+        if (subscribers == null) {
+            return;
+        }
+        Frame frame = new Frame(event.event(), toJson(event.data()), System.nanoTime());
+        for (Connection connection : subscribers) {
+            enqueue(connection, frame);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@realtimeConfig.gateway.heartbeatIntervalMs}")
+    public void heartbeat() {
+        for (Set<Connection> subscribers : channels.values()) {
+            for (Connection connection : subscribers) {
+                enqueue(connection, Frame.HEARTBEAT);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        channels.values().forEach(subscribers -> subscribers.forEach(this::disconnect));
+        senders.shutdown();
+    }
+
+    private void enqueue(Connection connection, Frame frame) {
+        if (connection.closed.get()) {
+            return;
+        }
+        if (!connection.queue.offer(frame)) {
+            slowConsumers.increment();
+            log.warn("Disconnecting slow realtime consumer on {} ({} events behind)", connection.channel, connection.queue.size());
+            disconnect(connection);
+            return;
+        }
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    /**
+     * Single writer per connection: runs until the queue is empty and no other thread took over
+     */
+    private void drain(Connection connection) {
+        do {
+            Frame frame;
+            while ((frame = connection.queue.poll()) != null && !connection.closed.get()) {
+                try {
+                    if (frame == Frame.HEARTBEAT) {
+                        connection.sink.heartbeat();
+                    } else {
+                        connection.sink.send(frame.event(), frame.data());
+                        deliveryLatency.record(System.nanoTime() - frame.publishedNanos(), TimeUnit.NANOSECONDS);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Realtime connection on {} closed: {}", connection.channel, e.getMessage());
+                    disconnect(connection);
+                    return;
+                }
+            }
+            connection.draining.set(false);
+        } while (!connection.queue.isEmpty() && !connection.closed.get() && connection.draining.compareAndSet(false, true));
+    }
+
+    private String toJson(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Realtime event payload is not serializable", e);
+        }
+    }
+
+    public static final class Connection {
+
+        private final String channel;
+        private final EventSink sink;
+        private final Queue<Frame> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(String channel, EventSink sink, int capacity) {
+            this.channel = channel;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        }
+
+        public String channel() {
+            return channel;
+        }
+    }
+
+    private record Frame(String event, String data, long publishedNanos) {
+
+        static final Frame HEARTBEAT = new Frame(null, null, 0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.repository.RealtimeOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records realtime events in the caller's transaction (realtime_outbox), so an event is published
+ * if and only if the change it announces commits. OutboxRelay does the publishing.
+ */
+@Component
+@RequiredArgsConstructor
+public class RealtimeOutbox {
+
+    private final RealtimeOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Fired after the writing transaction commits, so the local relay can publish without waiting for its next poll
+     */
+    public record EventsWritten() {
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(RealtimeEvent event) {
+        outboxRepository.insert(event);
+        eventPublisher.publishEvent(new EventsWritten());
+    }
+}
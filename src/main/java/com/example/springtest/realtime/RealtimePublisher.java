@@ -0,0 +1,20 @@
+package com.example.springtest.realtime;
+
+import java.util.List;
+
+/**
+ * Sends realtime events to subscribers of chat-{uuid} channels.
+ * Implementations may block; RealtimeDeliveryQueue calls them from its workers, never from request threads.
+ * A RealtimeDeliveryException marks whether a failure is worth retrying.
+ */
+public interface RealtimePublisher {
+
+    void publish(RealtimeEvent event);
+
+    /**
+     * Publish several events, as one request where the transport supports it
+     */
+    default void publishBatch(List<RealtimeEvent> events) {
+        events.forEach(this::publish);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.springtest.repository;
+
+import com.example.springtest.dto.ChatRow;
+import com.example.springtest.id.UuidV7;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * chats_archive (see V12): cold chats moved out of chats by ChatArchivalJob.
+ * Read-only for the application apart from KeyRotationJob re-sealing rows; every read returns the same ChatRow projection as the hot queries.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatArchiveRepository {
+
+    /**
+     * Columns shared by chats and chats_archive, in the order the archival INSERT ... SELECT copies them
+     */
+    public static final String COLUMNS =
+            "id, uuid, chat_from, chat_to, conversation_id, message, message_data, key_id, is_encrypted, created_at, updated_at";
+
+    static final String ROW_SELECT =
+            "SELECT a.id, a.uuid, a.message, a.message_data, a.is_encrypted, " +
+            "f.id AS from_id, f.uuid AS from_uuid, f.name AS from_name, " +
+            "t.id AS to_id, t.uuid AS to_uuid, t.name AS to_name, a.created_at, a.updated_at ";
+
+    static final String ROW_JOINS =
+            "JOIN users f ON f.id = a.chat_from JOIN users t ON t.id = a.chat_to ";
+
+    static final RowMapper<ChatRow> ROW_MAPPER = (rs, rowNum) -> new ChatRow(
+            rs.getLong("id"),
+            UuidV7.toString(rs.getBytes("uuid")),
+            rs.getString("message"),
+            rs.getBytes("message_data"),
+            rs.getBoolean("is_encrypted"),
+            rs.getLong("from_id"),
+            UuidV7.toString(rs.getBytes("from_uuid")),
+            rs.getString("from_name"),
+            rs.getLong("to_id"),
+            UuidV7.toString(rs.getBytes("to_uuid")),
+            rs.getString("to_name"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Highest archived id; every chat up to it lives in chats_archive (0 when nothing is archived)
+     */
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM chats_archive", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    /**
+     * Archived chats by id, oldest first
+     */
+    public List<ChatRow> findRowsByIdIn(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.query(
+                ROW_SELECT + "FROM chats_archive a " + ROW_JOINS + "WHERE a.id IN (" + placeholders + ") ORDER BY a.id ASC",
+                ROW_MAPPER, ids.toArray());
+    }
+
+    /**
+     * Keyset page of archived chats by id, oldest first, optionally of one sender (userColumn chat_from)
+     * or recipient (chat_to); the primary key and the user indexes all end with id
+     */
+    public List<ChatRow> findRowPage(String userColumn, Long userId, long afterId, int limit) {
+        if (userColumn == null) {
+            return jdbcTemplate.query(
+                    ROW_SELECT + "FROM chats_archive a " + ROW_JOINS + "WHERE a.id > ? ORDER BY a.id ASC LIMIT ?",
+                    ROW_MAPPER, afterId, limit);
+        }
+        return jdbcTemplate.query(
+                ROW_SELECT + "FROM chats_archive a " + ROW_JOINS +
+                "WHERE a." + userColumn + " = ? AND a.id > ? ORDER BY a.id ASC LIMIT ?",
+                ROW_MAPPER, userId, afterId, limit);
+    }
+
+    public boolean existsById(long id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chats_archive WHERE id = ?", Integer.class, id);
+        return count != null && count > 0;
+    }
+
+    /**
+     * One page of archived history between two users, newest first, strictly older than the cursor.
+     * Same UNION ALL shape as ChatPageRepository.findPageBetweenUsers, on idx_archive_pair_created.
+     */
+    public List<ChatRow> findPageBetweenUsers(long user1Id, long user2Id, LocalDateTime createdAt, long id, int limit) {
+        return jdbcTemplate.query(pageBetweenUsersSql("chats_archive"), ROW_MAPPER,
+                pageBetweenUsersArgs(user1Id, user2Id, createdAt, id, limit));
+    }
+
+    /**
+     * Newest-first page of the chats between two users in table (chats or chats_archive): one sorted range scan
+     * per direction on (chat_from, chat_to, created_at, id), merged and joined back to the rows and both users.
+     * Self-chats are only read by the first branch.
+     */
+    static String pageBetweenUsersSql(String table) {
+        String direction = "(SELECT id, created_at FROM " + table + " WHERE chat_from = ? AND chat_to = ? %s" +
+                "AND (created_at < ? OR (created_at = ? AND id < ?)) ORDER BY created_at DESC, id DESC LIMIT ?)";
+        return ROW_SELECT + "FROM (" +
+                direction.formatted("") + " UNION ALL " + direction.formatted("AND chat_from <> chat_to ") +
+                ") page JOIN " + table + " a ON a.id = page.id " + ROW_JOINS +
+                "ORDER BY a.created_at DESC, a.id DESC LIMIT ?";
+    }
+
+    static Object[] pageBetweenUsersArgs(long user1Id, long user2Id, LocalDateTime createdAt, long id, int limit) {
+        return new Object[]{
+                user1Id, user2Id, createdAt, createdAt, id, limit,
+                user2Id, user1Id, createdAt, createdAt, id, limit,
+                limit};
+    }
+
+    /**
+     * One page of a user's archived timeline (sent and received), newest first, below beforeId
+     */
+    public List<ChatRow> findTimelineRows(long userId, long beforeId, int limit) {
+        return jdbcTemplate.query(
+                ROW_SELECT + "FROM (" +
+                "(SELECT id FROM chats_archive WHERE chat_from = ? AND id < ? ORDER BY id DESC LIMIT ?) " +
+                "UNION ALL " +
+                "(SELECT id FROM chats_archive WHERE chat_to = ? AND chat_from <> ? AND id < ? ORDER BY id DESC LIMIT ?)" +
+                ") page JOIN chats_archive a ON a.id = page.id " + ROW_JOINS +
+                "ORDER BY a.id DESC LIMIT ?",
+                ROW_MAPPER,
+                userId, beforeId, limit,
+                userId, userId, beforeId, limit,
+                limit);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.springtest.repository;
+
+import com.example.springtest.dto.ChatRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Conversation history pages by user pair from chats, used until every chat has a conversation_id.
+ * The UNION ALL over both directions is native SQL, which JPA cannot map to ChatRow, so it runs on
+ * JdbcTemplate with the same SQL and row mapping as the archive (see ChatArchiveRepository).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatPageRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One page of the conversation between two users, newest first, strictly older than the cursor.
+     * Each direction is a range scan on idx_chats_pair_created (chat_from, chat_to, created_at, id),
+     * and both participants are joined in, so mapping the page needs no further queries.
+     */
+    public List<ChatRow> findPageBetweenUsers(long user1Id, long user2Id, LocalDateTime createdAt, long id, int limit) {
+        return jdbcTemplate.query(ChatArchiveRepository.pageBetweenUsersSql("chats"), ChatArchiveRepository.ROW_MAPPER,
+                ChatArchiveRepository.pageBetweenUsersArgs(user1Id, user2Id, createdAt, id, limit));
+    }
+}
@@ -1,35 +1,129 @@
 package com.example.springtest.repository;
 
+import com.example.springtest.dto.ChatRow;
 import com.example.springtest.entity.Chat;
 import com.example.springtest.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChatRepository extends JpaRepository<Chat, Long> {
-    List<Chat> findByChatFrom(User chatFrom);
 
-    List<Chat> findByChatTo(User chatTo);
+    /**
+     * Select list for the ChatRow projections: the chat and both participants in one round trip
+     */
+    String CHAT_ROW_SELECT = "SELECT new com.example.springtest.dto.ChatRow(" +
+            "c.id, c.uuid, c.message, c.messageData, c.isEncrypted, " +
+            "f.id, f.uuid, f.name, t.id, t.uuid, t.name, c.createdAt, c.updatedAt) " +
+            "FROM Chat c JOIN c.chatFrom f JOIN c.chatTo t ";
+
+    @Query(CHAT_ROW_SELECT + "ORDER BY c.id")
+    List<ChatRow> findAllRows();
+
+    @Query(CHAT_ROW_SELECT + "WHERE c.chatFrom = :user")
+    List<ChatRow> findRowsByChatFrom(@Param("user") User user);
 
-    List<Chat> findByChatFromOrChatTo(User chatFrom, User chatTo);
+    @Query(CHAT_ROW_SELECT + "WHERE c.chatTo = :user")
+    List<ChatRow> findRowsByChatTo(@Param("user") User user);
+
+    /**
+     * Keyset pages by id: the primary key, idx_chat_from and idx_chat_to all end with id,
+     * so each page is one index range read of at most limit rows
+     */
+    @Query(CHAT_ROW_SELECT + "WHERE c.id > :afterId ORDER BY c.id ASC")
+    List<ChatRow> findRowPage(@Param("afterId") Long afterId, Limit limit);
+
+    @Query(CHAT_ROW_SELECT + "WHERE c.chatFrom = :user AND c.id > :afterId ORDER BY c.id ASC")
+    List<ChatRow> findRowPageByChatFrom(@Param("user") User user, @Param("afterId") Long afterId, Limit limit);
+
+    @Query(CHAT_ROW_SELECT + "WHERE c.chatTo = :user AND c.id > :afterId ORDER BY c.id ASC")
+    List<ChatRow> findRowPageByChatTo(@Param("user") User user, @Param("afterId") Long afterId, Limit limit);
 
     /**
      * Find chats between two specific users only
      * Returns chats where (user1 → user2) OR (user2 → user1)
      */
-    @Query("SELECT c FROM Chat c WHERE " +
+    @Query(CHAT_ROW_SELECT + "WHERE " +
            "(c.chatFrom = :user1 AND c.chatTo = :user2) OR " +
            "(c.chatFrom = :user2 AND c.chatTo = :user1) " +
            "ORDER BY c.createdAt ASC")
-    List<Chat> findChatsBetweenUsers(@Param("user1") User user1, @Param("user2") User user2);
+    List<ChatRow> findRowsBetweenUsers(@Param("user1") User user1, @Param("user2") User user2);
+
+    /**
+     * Whole conversation, oldest first: one range scan on idx_chats_conversation_created
+     */
+    @Query(CHAT_ROW_SELECT + "WHERE c.conversationId = :conversationId ORDER BY c.createdAt ASC, c.id ASC")
+    List<ChatRow> findRowsByConversationId(@Param("conversationId") Long conversationId);
+
+    /**
+     * One page of a conversation, newest first, strictly older than the cursor
+     */
+    @Query(CHAT_ROW_SELECT + "WHERE c.conversationId = :conversationId " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ChatRow> findRowPageInConversation(@Param("conversationId") Long conversationId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Limit limit);
+
+    /**
+     * Every chat a user sent or received, oldest first
+     */
+    @Query(CHAT_ROW_SELECT + "WHERE c.chatFrom = :user OR c.chatTo = :user ORDER BY c.id ASC")
+    List<ChatRow> findRowsByParticipant(@Param("user") User user);
+
+    @Query(CHAT_ROW_SELECT + "WHERE c.id IN :ids ORDER BY c.id ASC")
+    List<ChatRow> findRowsByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Ids of one timeline page of a user (sent and received), newest first, below beforeId.
+     * InnoDB secondary indexes end with the primary key, so idx_chat_from and idx_chat_to are
+     * (user, id) and each branch reads at most :limit index entries backwards.
+     */
+    @Query(value = "SELECT id FROM (" +
+            "(SELECT id FROM chats WHERE chat_from = :userId AND id < :beforeId ORDER BY id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT id FROM chats WHERE chat_to = :userId AND chat_from <> :userId AND id < :beforeId " +
+            "ORDER BY id DESC LIMIT :limit)" +
+            ") timeline ORDER BY id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findTimelineIds(@Param("userId") Long userId,
+                               @Param("beforeId") Long beforeId,
+                               @Param("limit") int limit);
+
+    /**
+     * Forward-only stream of chats matching the optional filters (null = no filter), in id order.
+     * A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows one by one instead of
+     * buffering the whole result; projections are not managed, so the persistence context stays empty.
+     * Must be consumed inside a transaction and closed; no other query may run on the connection meanwhile.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(CHAT_ROW_SELECT + "WHERE (:senderId IS NULL OR c.chatFrom.id = :senderId) " +
+           "AND (:receiverId IS NULL OR c.chatTo.id = :receiverId) " +
+           "AND (:from IS NULL OR c.createdAt >= :from) " +
+           "AND (:to IS NULL OR c.createdAt < :to) " +
+           "ORDER BY c.id ASC")
+    Stream<ChatRow> streamRows(@Param("senderId") Long senderId,
+                               @Param("receiverId") Long receiverId,
+                               @Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to);
 
     /**
-     * Find all chats by encryption status
+     * True while some chats still wait for the conversation backfill
      */
-    List<Chat> findByIsEncrypted(Boolean isEncrypted);
+    boolean existsByConversationIdIsNull();
 
     /**
      * Count chats by encryption status
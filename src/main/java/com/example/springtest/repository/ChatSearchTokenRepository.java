@@ -0,0 +1,78 @@
+package com.example.springtest.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * chat_search_tokens (see V11): blind index tokens per participant and chat
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatSearchTokenRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Index a chat for both participants (once for a chat to oneself)
+     */
+    public void insertTokens(long chatId, long fromId, long toId, List<byte[]> tokens) {
+        insertAll(List.of(new ChatTokens(chatId, fromId, toId, tokens)));
+    }
+
+    /**
+     * Index several chats with one JDBC batch
+     */
+    public void insertAll(List<ChatTokens> chats) {
+        List<Object[]> rows = new ArrayList<>();
+        for (ChatTokens chat : chats) {
+            for (byte[] token : chat.tokens()) {
+                rows.add(new Object[]{chat.fromId(), token, chat.chatId()});
+                if (chat.fromId() != chat.toId()) {
+                    rows.add(new Object[]{chat.toId(), token, chat.chatId()});
+                }
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT IGNORE INTO chat_search_tokens (user_id, token, chat_id) VALUES (?, ?, ?)", rows);
+        }
+    }
+
+    public void deleteByChatId(long chatId) {
+        jdbcTemplate.update("DELETE FROM chat_search_tokens WHERE chat_id = ?", chatId);
+    }
+
+    public void deleteByChatIdRange(long afterId, long lastId) {
+        jdbcTemplate.update("DELETE FROM chat_search_tokens WHERE chat_id > ? AND chat_id <= ?", afterId, lastId);
+    }
+
+    /**
+     * Chats of userId containing every token, newest first, below beforeChatId.
+     * Each token is one range of the primary key; no chat row is read.
+     */
+    public List<Long> findChatIdsWithAllTokens(long userId, List<byte[]> tokens, long beforeChatId, int limit) {
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(tokens.size(), "?"));
+        List<Object> args = new ArrayList<>(tokens.size() + 4);
+        args.add(userId);
+        args.addAll(tokens);
+        args.add(beforeChatId);
+        args.add(tokens.size());
+        args.add(limit);
+        return jdbcTemplate.queryForList(
+                "SELECT chat_id FROM chat_search_tokens " +
+                "WHERE user_id = ? AND token IN (" + placeholders + ") AND chat_id < ? " +
+                "GROUP BY chat_id HAVING COUNT(*) = ? ORDER BY chat_id DESC LIMIT ?",
+                Long.class, args.toArray());
+    }
+
+    public record ChatTokens(long chatId, long fromId, long toId, List<byte[]> tokens) {
+    }
+}
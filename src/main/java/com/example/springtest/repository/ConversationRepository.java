@@ -0,0 +1,31 @@
+package com.example.springtest.repository;
+
+import com.example.springtest.entity.Conversation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    @Query("SELECT c.id FROM Conversation c WHERE c.userLow.id = :userLow AND c.userHigh.id = :userHigh")
+    Optional<Long> findIdByPair(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh);
+
+    /**
+     * Locking read: sees a conversation committed by another transaction after this one's snapshot
+     */
+    @Query(value = "SELECT id FROM conversations WHERE user_low = :userLow AND user_high = :userHigh LOCK IN SHARE MODE",
+            nativeQuery = true)
+    Optional<Long> findIdByPairForShare(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh);
+
+    /**
+     * Create the conversation unless a concurrent request already did
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO conversations (user_low, user_high) VALUES (:userLow, :userHigh)",
+            nativeQuery = true)
+    int insertIgnore(@Param("userLow") Long userLow, @Param("userHigh") Long userHigh);
+}
@@ -0,0 +1,118 @@
+package com.example.springtest.repository;
+
+import com.example.springtest.id.UuidV7;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * conversation_summaries (see V10): one inbox row per (user, peer), maintained incrementally.
+ * Plain JDBC because every write is an upsert or a relative update; it joins the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConversationSummaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Make chatId the last message of (userId, peerId), adding unreadDelta to the unread count.
+     * last_message_at is assigned before last_chat_id because MySQL applies the assignments in order.
+     */
+    public void upsertLastMessage(long userId, long peerId, long chatId, LocalDateTime createdAt, int unreadDelta) {
+        jdbcTemplate.update(
+                "INSERT INTO conversation_summaries (user_id, peer_id, last_chat_id, last_message_at, unread_count) " +
+                "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                "last_message_at = IF(VALUES(last_chat_id) > last_chat_id, VALUES(last_message_at), last_message_at), " +
+                "last_chat_id = GREATEST(last_chat_id, VALUES(last_chat_id)), " +
+                "unread_count = unread_count + VALUES(unread_count)",
+                userId, peerId, chatId, createdAt, unreadDelta);
+    }
+
+    /**
+     * Bump updated_at of the summaries whose last message is chatId (e.g. after an edit)
+     */
+    public void touchLastMessage(long chatId, long userId, long peerId) {
+        jdbcTemplate.update(
+                "UPDATE conversation_summaries SET updated_at = CURRENT_TIMESTAMP " +
+                "WHERE last_chat_id = ? AND ((user_id = ? AND peer_id = ?) OR (user_id = ? AND peer_id = ?))",
+                chatId, userId, peerId, peerId, userId);
+    }
+
+    /**
+     * Remove a deleted chat that userId had not read yet from its unread count
+     */
+    public void decrementUnread(long userId, long peerId, long chatId) {
+        jdbcTemplate.update(
+                "UPDATE conversation_summaries SET unread_count = GREATEST(unread_count - 1, 0) " +
+                "WHERE user_id = ? AND peer_id = ? AND last_read_chat_id < ?",
+                userId, peerId, chatId);
+    }
+
+    /**
+     * After chatId was deleted: point both summaries of the pair at the newest remaining chat,
+     * or remove them when the pair has no chats left (in chats, or in chats_archive when searchArchive is set)
+     */
+    public void replaceDeletedLastMessage(long chatId, long userId, long peerId, boolean searchArchive) {
+        Integer affected = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM conversation_summaries " +
+                "WHERE last_chat_id = ? AND ((user_id = ? AND peer_id = ?) OR (user_id = ? AND peer_id = ?))",
+                Integer.class, chatId, userId, peerId, peerId, userId);
+        if (affected == null || affected == 0) {
+            return;
+        }
+
+        List<LastChat> remaining = findLastChat("chats", userId, peerId);
+        if (remaining.isEmpty() && searchArchive) {
+            remaining = findLastChat("chats_archive", userId, peerId);
+        }
+
+        if (remaining.isEmpty()) {
+            jdbcTemplate.update(
+                    "DELETE FROM conversation_summaries WHERE (user_id = ? AND peer_id = ?) OR (user_id = ? AND peer_id = ?)",
+                    userId, peerId, peerId, userId);
+            return;
+        }
+        LastChat last = remaining.get(0);
+        jdbcTemplate.update(
+                "UPDATE conversation_summaries SET last_chat_id = ?, last_message_at = ? " +
+                "WHERE last_chat_id = ? AND ((user_id = ? AND peer_id = ?) OR (user_id = ? AND peer_id = ?))",
+                last.id(), last.createdAt(), chatId, userId, peerId, peerId, userId);
+    }
+
+    /**
+     * One inbox page of userId with the peer's public fields, most recent conversation first
+     */
+    public List<InboxRow> findInboxPage(long userId, long beforeChatId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT s.peer_id, u.uuid, u.name, s.last_chat_id, s.last_message_at, s.unread_count " +
+                "FROM conversation_summaries s JOIN users u ON u.id = s.peer_id " +
+                "WHERE s.user_id = ? AND s.last_chat_id < ? ORDER BY s.last_chat_id DESC LIMIT ?",
+                (rs, rowNum) -> new InboxRow(
+                        rs.getLong("peer_id"),
+                        UuidV7.toString(rs.getBytes("uuid")),
+                        rs.getString("name"),
+                        rs.getLong("last_chat_id"),
+                        rs.getObject("last_message_at", LocalDateTime.class),
+                        rs.getInt("unread_count")),
+                userId, beforeChatId, limit);
+    }
+
+    private List<LastChat> findLastChat(String table, long userId, long peerId) {
+        return jdbcTemplate.query(
+                "SELECT id, created_at FROM " + table + " " +
+                "WHERE (chat_from = ? AND chat_to = ?) OR (chat_from = ? AND chat_to = ?) ORDER BY id DESC LIMIT 1",
+                (rs, rowNum) -> new LastChat(rs.getLong("id"), rs.getObject("created_at", LocalDateTime.class)),
+                userId, peerId, peerId, userId);
+    }
+
+    public record InboxRow(long peerId, String peerUuid, String peerName, long lastChatId,
+                           LocalDateTime lastMessageAt, int unreadCount) {
+    }
+
+    private record LastChat(long id, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.springtest.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * id_nodes (see V16): leases on the node numbers embedded in chat ids.
+ * Times are the database's (NOW(6)), so a lease means the same thing on every node.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdNodeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lease the lowest node number that is free or whose lease ran out. Must run in a transaction.
+     */
+    public Optional<Integer> claim(String owner, long leaseMs) {
+        List<Integer> free = jdbcTemplate.queryForList(
+                "SELECT node_id FROM id_nodes WHERE expires_at IS NULL OR expires_at < NOW(6) " +
+                "ORDER BY node_id LIMIT 1 FOR UPDATE SKIP LOCKED", Integer.class);
+        if (free.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbcTemplate.update("UPDATE id_nodes SET owner = ?, expires_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) " +
+                "WHERE node_id = ?", owner, leaseMs * 1000, free.get(0));
+        return Optional.of(free.get(0));
+    }
+
+    /**
+     * Extend a lease; false if it expired and another node took the number meanwhile
+     */
+    public boolean renew(int nodeId, String owner, long leaseMs) {
+        return jdbcTemplate.update("UPDATE id_nodes SET expires_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) " +
+                "WHERE node_id = ? AND owner = ?", leaseMs * 1000, nodeId, owner) == 1;
+    }
+
+    public void release(int nodeId, String owner) {
+        jdbcTemplate.update("UPDATE id_nodes SET owner = NULL, expires_at = NULL WHERE node_id = ? AND owner = ?",
+                nodeId, owner);
+    }
+}
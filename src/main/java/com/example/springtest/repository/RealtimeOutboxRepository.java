@@ -0,0 +1,140 @@
+package com.example.springtest.repository;
+
+import com.example.springtest.realtime.RealtimeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * realtime_outbox (see V15): realtime events written with the change they announce, published by OutboxRelay.
+ * Times are the database's (NOW(6)), so leases mean the same thing on every node.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RealtimeOutboxRepository {
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * An outbox row as claimed by the relay; attempts already counts the current one, data is null if unreadable
+     */
+    public record OutboxRow(long id, RealtimeEvent event, int attempts) {
+    }
+
+    public void insert(RealtimeEvent event) {
+        jdbcTemplate.update("INSERT INTO realtime_outbox (channel, event, payload) VALUES (?, ?, ?)",
+                event.channel(), event.event(), toJson(event.data()));
+    }
+
+    /**
+     * Lock up to limit due rows (skipping rows other nodes hold) and lease them for leaseMs.
+     * Must run in a transaction; the lease outlives it, the row locks do not.
+     */
+    public List<OutboxRow> claim(int limit, long leaseMs, String owner) {
+        List<OutboxRow> rows = jdbcTemplate.query(
+                "SELECT id, channel, event, payload, attempts FROM realtime_outbox " +
+                "WHERE failed_at IS NULL AND available_at <= NOW(6) " +
+                "ORDER BY available_at, id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new OutboxRow(
+                        rs.getLong("id"),
+                        new RealtimeEvent(rs.getString("channel"), rs.getString("event"), fromJson(rs.getString("payload"))),
+                        rs.getInt("attempts") + 1),
+                limit);
+        if (!rows.isEmpty()) {
+            List<Object> args = new ArrayList<>(rows.size() + 2);
+            args.add(owner);
+            args.add(leaseMs * 1000);
+            rows.forEach(row -> args.add(row.id()));
+            jdbcTemplate.update("UPDATE realtime_outbox SET attempts = attempts + 1, claimed_by = ?, " +
+                    "available_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)) WHERE id IN (" + placeholders(rows.size()) + ")",
+                    args.toArray());
+        }
+        return rows;
+    }
+
+    /**
+     * Published rows are removed, keeping the table (and the claim query) small
+     */
+    public void deleteByIdIn(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM realtime_outbox WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+        }
+    }
+
+    public void reschedule(long id, long delayMs, String error) {
+        jdbcTemplate.update("UPDATE realtime_outbox SET available_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)), " +
+                "claimed_by = NULL, last_error = ? WHERE id = ?", delayMs * 1000, truncate(error), id);
+    }
+
+    /**
+     * Offer a row again after delayMs without counting the claim as an attempt (the delivery queue
+     * turned it away before trying)
+     */
+    public void postpone(long id, long delayMs) {
+        jdbcTemplate.update("UPDATE realtime_outbox SET attempts = attempts - 1, " +
+                "available_at = TIMESTAMPADD(MICROSECOND, ?, NOW(6)), claimed_by = NULL WHERE id = ?", delayMs * 1000, id);
+    }
+
+    public void markFailed(long id, String error) {
+        jdbcTemplate.update("UPDATE realtime_outbox SET failed_at = NOW(6), claimed_by = NULL, last_error = ? WHERE id = ?",
+                truncate(error), id);
+    }
+
+    /**
+     * Drop rows that gave up more than retentionHours ago
+     */
+    public int deleteFailedBefore(int retentionHours) {
+        return jdbcTemplate.update("DELETE FROM realtime_outbox WHERE failed_at < TIMESTAMPADD(HOUR, ?, NOW(6))",
+                -retentionHours);
+    }
+
+    public long countPending() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM realtime_outbox WHERE failed_at IS NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    public long countFailed() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM realtime_outbox WHERE failed_at IS NOT NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private String toJson(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Realtime event payload is not serializable", e);
+        }
+    }
+
+    /**
+     * Null for an unreadable payload, so one bad row cannot block the claim query
+     */
+    private Map<String, Object> fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, PAYLOAD_TYPE);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
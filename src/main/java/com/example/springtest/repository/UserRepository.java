@@ -1,8 +1,14 @@
 package com.example.springtest.repository;
 
+import com.example.springtest.dto.UserSummaryResponse;
 import com.example.springtest.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -10,4 +16,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     Optional<User> findByUuid(String uuid);
+
+    /**
+     * Public fields of a user, without loading the entity (see UserLookupService)
+     */
+    @Query("SELECT new com.example.springtest.dto.UserSummaryResponse(u.id, u.uuid, u.name) FROM User u WHERE u.uuid = :uuid")
+    Optional<UserSummaryResponse> findSummaryByUuid(@Param("uuid") String uuid);
+
+    @Query("SELECT new com.example.springtest.dto.UserSummaryResponse(u.id, u.uuid, u.name) FROM User u WHERE u.uuid IN :uuids")
+    List<UserSummaryResponse> findSummariesByUuidIn(@Param("uuids") Collection<? extends String> uuids);
+
+    /**
+     * Keyset page of users by id
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
 }
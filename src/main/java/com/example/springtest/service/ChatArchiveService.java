@@ -0,0 +1,193 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.ArchiveConfig;
+import com.example.springtest.dto.ChatCursor;
+import com.example.springtest.dto.ChatRow;
+import com.example.springtest.repository.ChatArchiveRepository;
+import com.example.springtest.repository.ChatRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read side of hot/cold storage. ChatArchivalJob moves chats to chats_archive as a contiguous id
+ * prefix, so "id <= archivedUpToId" is the hot boundary: reads query chats first and only go to
+ * the archive when a page runs past the hot rows, and never while nothing has been archived.
+ * The boundary is MAX(id) of chats_archive, re-read every chat.archive.boundary-refresh-ms, so
+ * every node follows the archival job wherever it runs.
+ * History pages of a pair found to have nothing archived skip the archive until the boundary
+ * reaches the pair's oldest chat.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class ChatArchiveService {
+
+    private final ChatArchiveRepository archiveRepository;
+    private final ChatRepository chatRepository;
+    private final ArchiveConfig archiveConfig;
+
+    private volatile long archivedUpToId;
+    private volatile long boundaryReadAtNanos;
+    private volatile boolean boundaryRead;
+
+    /**
+     * User pair -> lowest id the pair can have outside the archive, for pairs whose archive page came
+     * back empty. Archival only moves ids up to the boundary, so the pair has nothing archived while
+     * the boundary stays below it.
+     */
+    private Cache<UserPair, Long> unarchivedPairs;
+
+    @PostConstruct
+    void initCache() {
+        unarchivedPairs = Caffeine.newBuilder()
+                .maximumSize(archiveConfig.getPairCacheMaxSize())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshBoundary() {
+        if (!archiveConfig.isEnabled()) {
+            archivedUpToId = 0;
+            return;
+        }
+        readBoundary();
+        log.info("Chats up to id {} are archived", archivedUpToId);
+    }
+
+    /**
+     * Called by the archival job for every moved chunk, so the node running it sees the new boundary at once
+     */
+    public void advanceBoundary(long lastArchivedId) {
+        archivedUpToId = Math.max(archivedUpToId, lastArchivedId);
+    }
+
+    /**
+     * Highest archived id, read from chats_archive at most every boundary-refresh-ms
+     */
+    public long archivedUpToId() {
+        if (!archiveConfig.isEnabled()) {
+            return 0;
+        }
+        if (!boundaryRead
+                || System.nanoTime() - boundaryReadAtNanos >= TimeUnit.MILLISECONDS.toNanos(archiveConfig.getBoundaryRefreshMs())) {
+            readBoundary();
+        }
+        return archivedUpToId;
+    }
+
+    public boolean hasArchivedRows() {
+        return archivedUpToId() > 0;
+    }
+
+    /**
+     * Chats by id from either table, oldest first; only ids at or below the boundary are looked up in the archive
+     */
+    public List<ChatRow> findRowsByIdIn(List<Long> ids) {
+        List<ChatRow> hot = chatRepository.findRowsByIdIn(ids);
+        long boundary = archivedUpToId();
+        if (hot.size() == ids.size() || boundary == 0) {
+            return hot;
+        }
+        Set<Long> found = new HashSet<>();
+        hot.forEach(row -> found.add(row.getId()));
+        List<Long> missing = ids.stream()
+                .filter(id -> id <= boundary && !found.contains(id))
+                .toList();
+        if (missing.isEmpty()) {
+            return hot;
+        }
+
+        List<ChatRow> rows = new ArrayList<>(hot);
+        rows.addAll(archiveRepository.findRowsByIdIn(missing));
+        rows.sort(Comparator.comparing(ChatRow::getId));
+        return rows;
+    }
+
+    /**
+     * Archived chats with an id above afterId, oldest first, of any user or of one sender or recipient.
+     * Archived ids are the lowest ones, so id-ordered listings read here first and continue in chats;
+     * nothing is queried once afterId is at or past the boundary.
+     */
+    public List<ChatRow> findRowPage(Long senderId, Long recipientId, long afterId, int limit) {
+        if (afterId >= archivedUpToId() || limit <= 0) {
+            return List.of();
+        }
+        if (senderId != null) {
+            return archiveRepository.findRowPage("chat_from", senderId, afterId, limit);
+        }
+        if (recipientId != null) {
+            return archiveRepository.findRowPage("chat_to", recipientId, afterId, limit);
+        }
+        return archiveRepository.findRowPage(null, null, afterId, limit);
+    }
+
+    /**
+     * True if the chat with this id was moved to chats_archive
+     */
+    public boolean isArchived(long id) {
+        return id <= archivedUpToId() && archiveRepository.existsById(id);
+    }
+
+    /**
+     * Continue a history page between two users in the archive, strictly older than the position
+     */
+    public List<ChatRow> findPageBetweenUsers(long user1Id, long user2Id, ChatCursor position, int limit) {
+        long boundary = archivedUpToId();
+        if (boundary == 0 || limit <= 0) {
+            return List.of();
+        }
+        UserPair pair = UserPair.of(user1Id, user2Id);
+        Long unarchivedFrom = unarchivedPairs.getIfPresent(pair);
+        if (unarchivedFrom != null && unarchivedFrom > boundary) {
+            return List.of();
+        }
+
+        List<ChatRow> rows = archiveRepository.findPageBetweenUsers(user1Id, user2Id, position.createdAt(), position.id(), limit);
+        if (rows.isEmpty() && position.id() > boundary) {
+            // Nothing archived below a hot position: the pair's other chats are all above it (or above the boundary)
+            unarchivedPairs.put(pair, position == ChatCursor.LATEST ? boundary + 1 : position.id());
+        }
+        return rows;
+    }
+
+    /**
+     * Continue a user's timeline in the archive, newest first, below beforeId
+     */
+    public List<ChatRow> findTimelineRows(long userId, long beforeId, int limit) {
+        if (!hasArchivedRows() || limit <= 0) {
+            return List.of();
+        }
+        return archiveRepository.findTimelineRows(userId, Math.min(beforeId, archivedUpToId() + 1), limit);
+    }
+
+    /**
+     * The boundary only moves forward: a replica behind the archival job's own advance does not pull it back
+     */
+    private void readBoundary() {
+        long maxId = archiveRepository.findMaxId();
+        boundaryReadAtNanos = System.nanoTime();
+        boundaryRead = true;
+        archivedUpToId = Math.max(archivedUpToId, maxId);
+    }
+
+    private record UserPair(long low, long high) {
+        static UserPair of(long userId1, long userId2) {
+            return new UserPair(Math.min(userId1, userId2), Math.max(userId1, userId2));
+        }
+    }
+}
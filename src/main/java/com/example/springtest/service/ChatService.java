@@ -1,19 +1,45 @@
 package com.example.springtest.service;
 
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.config.PaginationConfig;
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ChatCursor;
+import com.example.springtest.dto.ChatExportRequest;
 import com.example.springtest.dto.ChatRequest;
 import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.ChatRow;
+import com.example.springtest.dto.CursorPageResponse;
+import com.example.springtest.dto.UserSummaryResponse;
 import com.example.springtest.entity.Chat;
 import com.example.springtest.entity.User;
+import com.example.springtest.exception.ArchivedChatException;
+import com.example.springtest.exception.PagedEndpointRequiredException;
 import com.example.springtest.exception.ResourceNotFoundException;
 import com.example.springtest.mapper.ChatMapper;
+import com.example.springtest.realtime.ChatEvents;
+import com.example.springtest.realtime.RealtimeOutbox;
+import com.example.springtest.repository.ChatPageRepository;
 import com.example.springtest.repository.ChatRepository;
 import com.example.springtest.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -22,9 +48,31 @@ import java.util.stream.Collectors;
 public class ChatService {
 
     private final ChatRepository chatRepository;
+    private final ChatPageRepository chatPageRepository;
     private final UserRepository userRepository;
     private final ChatMapper chatMapper;
     private final EncryptionService encryptionService;
+    private final EncryptionConfig encryptionConfig;
+    private final PaginationConfig paginationConfig;
+    private final ConversationService conversationService;
+    private final InboxService inboxService;
+    private final SearchService searchService;
+    private final ChatArchiveService chatArchiveService;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final RealtimeOutbox realtimeOutbox;
+    private final UserLookupService userLookupService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Rows decrypted and written per step of an export
+     */
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    /**
+     * Resolved export filters; null means no filter
+     */
+    public record ExportQuery(Long senderId, Long receiverId, LocalDateTime from, LocalDateTime to) {
+    }
 
     /**
      * Create a new chat message
@@ -35,86 +83,197 @@ public class ChatService {
         
         validateChatRequest(chatRequest);
         
-        User chatFromUser = findUserByUuid(chatRequest.getChatFromUuid());
-        User chatToUser = findUserByUuid(chatRequest.getChatToUuid());
+        // Both users come from the user cache; the chat only needs their ids as foreign keys
+        UserSummaryResponse chatFrom = userLookupService.getSummary(chatRequest.getChatFromUuid());
+        UserSummaryResponse chatTo = userLookupService.getSummary(chatRequest.getChatToUuid());
+        User chatFromUser = userRepository.getReferenceById(chatFrom.getId());
+        User chatToUser = userRepository.getReferenceById(chatTo.getId());
         
         Chat chat = new Chat();
         // Encrypt message before saving
-        String encryptedMessage = encryptionService.encrypt(chatRequest.getMessage());
-        chat.setMessage(encryptedMessage);
-        chat.setIsEncrypted(true);
+        applyEncryptedMessage(chat, chatRequest.getMessage());
         chat.setChatFrom(chatFromUser);
         chat.setChatTo(chatToUser);
+        chat.setConversationId(conversationService.resolveConversationId(chatFromUser, chatToUser));
 
         Chat savedChat = chatRepository.save(chat);
+        replicaLagGuard.recordWrite(chatFrom.getUuid(), chatTo.getUuid());
+        inboxService.onChatCreated(savedChat);
+        searchService.indexChat(savedChat, chatRequest.getMessage());
         log.info("Chat message created with id: {}", savedChat.getId());
-        
-        return chatMapper.toResponse(savedChat);
+
+        ChatResponse response = chatMapper.toResponse(savedChat, chatRequest.getMessage(), chatFrom, chatTo);
+        realtimeOutbox.add(ChatEvents.newMessageRef(savedChat.getId(), chatTo.getUuid()));
+        return response;
     }
 
     /**
-     * Get all chats
+     * Get all chats (only while chat.pagination.legacy-full-list is on, see getChatPage)
      */
     @Transactional(readOnly = true)
     public List<ChatResponse> getAllChats() {
         log.debug("Fetching all chat messages");
-        return chatRepository.findAll()
-                .stream()
-                .map(chatMapper::toResponse)
-                .collect(Collectors.toList());
+        requireFullLists("GET /api/v1/chats/page");
+        return chatMapper.toResponsesFromRows(chatRepository.findAllRows());
     }
 
     /**
-     * Get chat by ID
+     * Get one page of all chats in id order
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatResponse> getChatPage(Integer limit, Long after) {
+        log.debug("Fetching chat page after id: {}", after);
+        int pageSize = paginationConfig.resolvePageSize(limit);
+        long afterId = afterId(after);
+        return toIdPage(withHotRows(chatArchiveService.findRowPage(null, null, afterId, pageSize + 1), pageSize + 1,
+                remaining -> chatRepository.findRowPage(afterId, Limit.of(remaining))), pageSize);
+    }
+
+    /**
+     * Get chat by ID, from chats or, for an archived chat, from chats_archive
      */
     @Transactional(readOnly = true)
     public ChatResponse getChatById(Long id) {
         log.debug("Fetching chat with id: {}", id);
-        Chat chat = findChatById(id);
-        return chatMapper.toResponse(chat);
+        Optional<Chat> chat = chatRepository.findById(id);
+        if (chat.isPresent()) {
+            return chatMapper.toResponse(chat.get());
+        }
+        List<ChatRow> archived = chatArchiveService.findRowsByIdIn(List.of(id));
+        if (archived.isEmpty()) {
+            throw new ResourceNotFoundException("Chat not found with id: " + id);
+        }
+        return chatMapper.toResponsesFromRows(archived).get(0);
     }
 
     /**
-     * Get all chats sent by a user
+     * Get all chats sent by a user (only while chat.pagination.legacy-full-list is on, see getSentChatPage)
      */
     @Transactional(readOnly = true)
     public List<ChatResponse> getChatsBySender(String userUuid) {
         log.debug("Fetching sent chats for user: {}", userUuid);
+        requireFullLists("POST /api/v1/chats/sent/page");
+        replicaLagGuard.readAs(userUuid);
         User user = findUserByUuid(userUuid);
-        return chatRepository.findByChatFrom(user)
-                .stream()
-                .map(chatMapper::toResponse)
-                .collect(Collectors.toList());
+        return chatMapper.toResponsesFromRows(chatRepository.findRowsByChatFrom(user));
+    }
+
+    /**
+     * Get one page of chats sent by a user in id order
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatResponse> getSentChatPage(String userUuid, Integer limit, Long after) {
+        log.debug("Fetching sent chat page for user: {} after id: {}", userUuid, after);
+        replicaLagGuard.readAs(userUuid);
+        return getSentChatPage(findUserByUuid(userUuid), paginationConfig.resolvePageSize(limit), after);
     }
 
     /**
-     * Get all chats received by a user
+     * Get all chats received by a user (only while chat.pagination.legacy-full-list is on, see getReceivedChatPage)
      */
     @Transactional(readOnly = true)
     public List<ChatResponse> getChatsByReceiver(String userUuid) {
         log.debug("Fetching received chats for user: {}", userUuid);
+        requireFullLists("POST /api/v1/chats/received/page");
+        replicaLagGuard.readAs(userUuid);
         User user = findUserByUuid(userUuid);
-        return chatRepository.findByChatTo(user)
-                .stream()
-                .map(chatMapper::toResponse)
-                .collect(Collectors.toList());
+        return chatMapper.toResponsesFromRows(chatRepository.findRowsByChatTo(user));
+    }
+
+    /**
+     * Get one page of chats received by a user in id order
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatResponse> getReceivedChatPage(String userUuid, Integer limit, Long after) {
+        log.debug("Fetching received chat page for user: {} after id: {}", userUuid, after);
+        replicaLagGuard.readAs(userUuid);
+        return getReceivedChatPage(findUserByUuid(userUuid), paginationConfig.resolvePageSize(limit), after);
     }
 
     /**
      * Get all chats between two users (both sent and received)
      * Only returns messages exchanged directly between user1 and user2
+     * (only while chat.pagination.legacy-full-list is on, see getChatPageBetweenUsers)
      */
     @Transactional(readOnly = true)
     public List<ChatResponse> getChatsBetweenUsers(String userUuid1, String userUuid2) {
         log.debug("Fetching chats between users: {} and {}", userUuid1, userUuid2);
+        requireFullLists("POST /api/v1/chats/between/page");
+        replicaLagGuard.readAs(userUuid1, userUuid2);
         User user1 = findUserByUuid(userUuid1);
         User user2 = findUserByUuid(userUuid2);
-        
+
+        if (conversationService.isConversationReadsEnabled()) {
+            List<ChatRow> rows = conversationService.findConversationId(user1, user2)
+                    .map(chatRepository::findRowsByConversationId)
+                    .orElse(List.of());
+            return chatMapper.toResponsesFromRows(rows);
+        }
+
         // Use repository method to get only chats between these two specific users
-        return chatRepository.findChatsBetweenUsers(user1, user2)
-                .stream()
-                .map(chatMapper::toResponse)
-                .collect(Collectors.toList());
+        return chatMapper.toResponsesFromRows(chatRepository.findRowsBetweenUsers(user1, user2));
+    }
+
+    /**
+     * Get one page of chats between two users: the latest messages first, then older pages via the cursor
+     * Items inside a page are ordered oldest to newest; nextCursor points to older messages
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatResponse> getChatPageBetweenUsers(String userUuid1, String userUuid2,
+                                                                    Integer limit, String cursor) {
+        log.debug("Fetching chat page between users: {} and {}", userUuid1, userUuid2);
+        replicaLagGuard.readAs(userUuid1, userUuid2);
+        User user1 = findUserByUuid(userUuid1);
+        User user2 = findUserByUuid(userUuid2);
+        return getChatPageBetweenUsers(user1, user2, paginationConfig.resolvePageSize(limit), cursor);
+    }
+
+    /**
+     * Resolve and validate export filters before the response starts streaming,
+     * so unknown users still fail with a normal 404
+     */
+    @Transactional(readOnly = true)
+    public ExportQuery prepareExport(ChatExportRequest request) {
+        replicaLagGuard.readAs(request.getSenderUuid(), request.getReceiverUuid());
+        Long senderId = isBlank(request.getSenderUuid()) ? null : findUserByUuid(request.getSenderUuid()).getId();
+        Long receiverId = isBlank(request.getReceiverUuid()) ? null : findUserByUuid(request.getReceiverUuid()).getId();
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        return new ExportQuery(senderId, receiverId, request.getFrom(), request.getTo());
+    }
+
+    /**
+     * Write matching chats to out as NDJSON (one ChatResponse per line)
+     * Rows are streamed from the database and decrypted EXPORT_BATCH_SIZE at a time, so heap use
+     * does not depend on how many chats match. Runs on the async request thread with its own transaction.
+     */
+    @Transactional(readOnly = true)
+    public void exportChats(ExportQuery query, OutputStream out) throws IOException {
+        log.info("Exporting chats: {}", query);
+        ObjectWriter writer = objectMapper.writerFor(ChatResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+
+        long exported = 0;
+        try (Stream<ChatRow> rows = chatRepository.streamRows(query.senderId(), query.receiverId(), query.from(), query.to());
+             SequenceWriter lines = writer.writeValues(out)) {
+            List<ChatRow> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+            Iterator<ChatRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == EXPORT_BATCH_SIZE || !iterator.hasNext()) {
+                    lines.writeAll(chatMapper.toResponsesFromRows(batch));
+                    lines.flush();
+                    exported += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (exported > 0) {
+            out.write('\n');
+        }
+        log.info("Exported {} chats", exported);
     }
 
     /**
@@ -126,13 +285,16 @@ public class ChatService {
         validateMessageNotEmpty(chatRequest.getMessage());
         
         // Encrypt message before saving
-        String encryptedMessage = encryptionService.encrypt(chatRequest.getMessage());
-        chat.setMessage(encryptedMessage);
-        chat.setIsEncrypted(true);
+        applyEncryptedMessage(chat, chatRequest.getMessage());
         Chat updatedChat = chatRepository.save(chat);
+        replicaLagGuard.recordWrite(chat.getChatFrom().getUuid(), chat.getChatTo().getUuid());
+        inboxService.onChatUpdated(updatedChat);
+        searchService.reindexChat(updatedChat, chatRequest.getMessage());
         
         log.info("Chat with id: {} updated successfully", id);
-        return chatMapper.toResponse(updatedChat);
+        ChatResponse response = chatMapper.toResponse(updatedChat);
+        realtimeOutbox.add(ChatEvents.editMessageRef(updatedChat.getId(), chat.getChatTo().getUuid()));
+        return response;
     }
 
     /**
@@ -142,25 +304,151 @@ public class ChatService {
         log.info("Deleting chat with id: {}", id);
         Chat chat = findChatById(id);
         chatRepository.delete(chat);
+        replicaLagGuard.recordWrite(chat.getChatFrom().getUuid(), chat.getChatTo().getUuid());
+        // The summaries look for the newest remaining chat, so the delete must be visible first
+        chatRepository.flush();
+        inboxService.onChatDeleted(chat);
+        searchService.removeChat(chat.getId());
+        realtimeOutbox.add(ChatEvents.deleteMessage(id, chat.getChatFrom().getUuid(), chat.getChatTo().getUuid()));
         log.info("Chat with id: {} deleted successfully", id);
     }
 
     // ====================== Private Helper Methods ======================
 
+    private CursorPageResponse<ChatResponse> getSentChatPage(User user, int pageSize, Long after) {
+        long afterId = afterId(after);
+        return toIdPage(withHotRows(chatArchiveService.findRowPage(user.getId(), null, afterId, pageSize + 1), pageSize + 1,
+                remaining -> chatRepository.findRowPageByChatFrom(user, afterId, Limit.of(remaining))), pageSize);
+    }
+
+    private CursorPageResponse<ChatResponse> getReceivedChatPage(User user, int pageSize, Long after) {
+        long afterId = afterId(after);
+        return toIdPage(withHotRows(chatArchiveService.findRowPage(null, user.getId(), afterId, pageSize + 1), pageSize + 1,
+                remaining -> chatRepository.findRowPageByChatTo(user, afterId, Limit.of(remaining))), pageSize);
+    }
+
+    /**
+     * Complete an id-ordered page that started in the archive with rows from chats; every hot id is
+     * above every archived one, so the hot query can reuse the same afterId
+     */
+    private List<ChatRow> withHotRows(List<ChatRow> archived, int limit, IntFunction<List<ChatRow>> hotRows) {
+        if (archived.size() >= limit) {
+            return archived;
+        }
+        if (archived.isEmpty()) {
+            return hotRows.apply(limit);
+        }
+        List<ChatRow> rows = new ArrayList<>(archived);
+        rows.addAll(hotRows.apply(limit - archived.size()));
+        return rows;
+    }
+
+    /**
+     * Build an id-ordered page from pageSize + 1 rows; the extra row only tells whether more exist
+     */
+    private CursorPageResponse<ChatResponse> toIdPage(List<ChatRow> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null;
+        return new CursorPageResponse<>(chatMapper.toResponsesFromRows(page), nextCursor, hasMore);
+    }
+
+    private long afterId(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    /**
+     * Read pageSize + 1 rows to know whether an older page exists
+     * Archived history is only queried once the hot rows of the conversation are exhausted, or
+     * directly when the cursor is already at or below the archive boundary
+     */
+    private CursorPageResponse<ChatResponse> getChatPageBetweenUsers(User user1, User user2, int pageSize, String cursor) {
+        ChatCursor position = ChatCursor.decode(cursor);
+        List<ChatResponse> newestFirst;
+        if (position.id() <= chatArchiveService.archivedUpToId()) {
+            // Every chat older than the cursor has been archived
+            newestFirst = List.of();
+        } else if (conversationService.isConversationReadsEnabled()) {
+            newestFirst = chatMapper.toResponsesFromRows(conversationService.findConversationId(user1, user2)
+                    .map(conversationId -> chatRepository.findRowPageInConversation(
+                            conversationId, position.createdAt(), position.id(), Limit.of(pageSize + 1)))
+                    .orElse(List.of()));
+        } else {
+            newestFirst = chatMapper.toResponsesFromRows(chatPageRepository.findPageBetweenUsers(
+                    user1.getId(), user2.getId(), position.createdAt(), position.id(), pageSize + 1));
+        }
+
+        if (newestFirst.size() <= pageSize) {
+            // The hot rows ran out before the page did: continue below the oldest one in chats_archive,
+            // which skips pairs known to have nothing archived
+            ChatCursor archivePosition = newestFirst.isEmpty()
+                    ? position
+                    : new ChatCursor(newestFirst.get(newestFirst.size() - 1).getCreatedAt(),
+                            newestFirst.get(newestFirst.size() - 1).getId());
+            List<ChatRow> archived = chatArchiveService.findPageBetweenUsers(
+                    user1.getId(), user2.getId(), archivePosition, pageSize + 1 - newestFirst.size());
+            if (!archived.isEmpty()) {
+                newestFirst = new ArrayList<>(newestFirst);
+                newestFirst.addAll(chatMapper.toResponsesFromRows(archived));
+            }
+        }
+
+        boolean hasMore = newestFirst.size() > pageSize;
+        List<ChatResponse> page = new ArrayList<>(newestFirst.subList(0, Math.min(pageSize, newestFirst.size())));
+        Collections.reverse(page);
+
+        String nextCursor = hasMore
+                ? new ChatCursor(page.get(0).getCreatedAt(), page.get(0).getId()).encode()
+                : null;
+        return new CursorPageResponse<>(page, nextCursor, hasMore);
+    }
+
     /**
-     * Find chat by ID or throw exception
+     * Find a hot chat by ID for a change, or throw: archived chats are read-only, unknown ids are not found
      */
     private Chat findChatById(Long id) {
         return chatRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Chat not found with id: " + id));
+                .orElseThrow(() -> chatArchiveService.isArchived(id)
+                        ? new ArchivedChatException("Chat " + id + " is archived and can no longer be changed")
+                        : new ResourceNotFoundException("Chat not found with id: " + id));
     }
 
     /**
-     * Find user by UUID or throw exception
+     * Unpaged lists are served only while chat.pagination.legacy-full-list is on; otherwise the
+     * client is sent to the paged endpoint instead of getting a silently truncated list
+     */
+    private void requireFullLists(String pagedEndpoint) {
+        if (!paginationConfig.isLegacyFullList()) {
+            throw new PagedEndpointRequiredException(pagedEndpoint);
+        }
+    }
+
+    /**
+     * Reference to a user by UUID or throw exception
+     * The id comes from the user cache; callers only use it as a query parameter, so the row is never loaded
      */
     private User findUserByUuid(String uuid) {
-        return userRepository.findByUuid(uuid)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with UUID: " + uuid));
+        return userLookupService.getReference(uuid);
+    }
+
+    /**
+     * Encrypt the plain text into the chat, in the binary envelope format unless disabled
+     */
+    private void applyEncryptedMessage(Chat chat, String plainText) {
+        if (encryptionConfig.isEnvelopeFormat()) {
+            chat.setMessageData(encryptionService.encryptToEnvelope(plainText));
+            chat.setKeyId(encryptionService.activeKeyId());
+            chat.setMessage(null);
+        } else {
+            chat.setMessage(encryptionService.encrypt(plainText));
+            chat.setMessageData(null);
+            chat.setKeyId(null);
+        }
+        chat.setIsEncrypted(true);
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
 
     /**
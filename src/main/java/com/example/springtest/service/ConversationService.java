@@ -0,0 +1,134 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.ConversationConfig;
+import com.example.springtest.entity.User;
+import com.example.springtest.repository.ChatRepository;
+import com.example.springtest.repository.ConversationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Resolves the canonical conversation of a user pair, with an in-memory pair -> id cache.
+ * Also decides whether history can be read by conversation_id, which is only safe once
+ * every chat row has one (see ConversationBackfillJob).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationService {
+
+    private final ConversationRepository conversationRepository;
+    private final ChatRepository chatRepository;
+    private final ConversationConfig conversationConfig;
+
+    private Cache<UserPair, Long> conversationIds;
+    private volatile boolean conversationReads;
+    private volatile boolean readsChecked;
+
+    @PostConstruct
+    void initCache() {
+        conversationIds = Caffeine.newBuilder()
+                .maximumSize(conversationConfig.getCacheMaxSize())
+                .build();
+    }
+
+    /**
+     * Conversation id of the two users, created on first use
+     * Must run inside the caller's transaction so the chat insert sees the new row
+     */
+    @Transactional
+    public Long resolveConversationId(User user1, User user2) {
+        UserPair pair = UserPair.of(user1.getId(), user2.getId());
+        Long cached = conversationIds.getIfPresent(pair);
+        if (cached != null) {
+            return cached;
+        }
+
+        Optional<Long> existing = conversationRepository.findIdByPair(pair.low(), pair.high());
+        if (existing.isPresent()) {
+            conversationIds.put(pair, existing.get());
+            return existing.get();
+        }
+
+        // A concurrent request may win the insert; the locking read then returns its committed row
+        conversationRepository.insertIgnore(pair.low(), pair.high());
+        Long created = conversationRepository.findIdByPairForShare(pair.low(), pair.high())
+                .orElseThrow(() -> new IllegalStateException("Conversation was not created for users "
+                        + pair.low() + " and " + pair.high()));
+        cacheAfterCommit(pair, created);
+        return created;
+    }
+
+    /**
+     * Conversation id of the two users, if they ever exchanged a message
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findConversationId(User user1, User user2) {
+        UserPair pair = UserPair.of(user1.getId(), user2.getId());
+        Long cached = conversationIds.getIfPresent(pair);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Long> existing = conversationRepository.findIdByPair(pair.low(), pair.high());
+        existing.ifPresent(id -> conversationIds.put(pair, id));
+        return existing;
+    }
+
+    /**
+     * True once every chat has a conversation_id, so history reads can use idx_chats_conversation_created
+     */
+    public boolean isConversationReadsEnabled() {
+        return conversationReads;
+    }
+
+    /**
+     * Re-check whether the backfill is complete; called at startup, every chat.conversations.reads-refresh-ms
+     * (the backfill may have run on another node) and when the backfill job finishes here
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "#{@conversationConfig.readsRefreshMs}", initialDelayString = "#{@conversationConfig.readsRefreshMs}")
+    @Transactional(readOnly = true)
+    public void refreshConversationReads() {
+        boolean enabled = !chatRepository.existsByConversationIdIsNull();
+        if (enabled != conversationReads || !readsChecked) {
+            log.info("History reads by conversation_id {}", enabled ? "enabled" : "disabled until the backfill completes");
+        }
+        conversationReads = enabled;
+        readsChecked = true;
+    }
+
+    /**
+     * Cache a conversation created by the current transaction only once it is committed,
+     * otherwise a rollback would leave an id in the cache that does not exist
+     */
+    private void cacheAfterCommit(UserPair pair, Long conversationId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            conversationIds.put(pair, conversationId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                conversationIds.put(pair, conversationId);
+            }
+        });
+    }
+
+    private record UserPair(long low, long high) {
+        static UserPair of(long userId1, long userId2) {
+            return new UserPair(Math.min(userId1, userId2), Math.max(userId1, userId2));
+        }
+    }
+}
@@ -1,68 +1,161 @@
 package com.example.springtest.service;
 
-import com.example.springtest.entity.Chat;
-import com.example.springtest.repository.ChatRepository;
+import com.example.springtest.dto.JobProgressResponse;
+import com.example.springtest.job.ChatArchivalJob;
+import com.example.springtest.job.ConversationBackfillJob;
+import com.example.springtest.job.KeyRotationJob;
+import com.example.springtest.job.SearchIndexBackfillJob;
+import com.example.springtest.job.MessageEncryptionJob;
+import com.example.springtest.repository.RealtimeOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DataMigrationService {
 
-    private final ChatRepository chatRepository;
-    private final EncryptionService encryptionService;
-
-    /**
-     * Encrypt all existing unencrypted chat messages
-     * This should be run once after deploying encryption feature
-     */
-    @Transactional
-    public int encryptExistingMessages() {
-        log.info("Starting encryption of existing chat messages...");
-        
-        // Find all unencrypted messages
-        List<Chat> unencryptedChats = chatRepository.findByIsEncrypted(false);
-        
-        if (unencryptedChats.isEmpty()) {
-            log.info("No unencrypted messages found");
-            return 0;
-        }
-        
-        log.info("Found {} unencrypted messages to encrypt", unencryptedChats.size());
-        
-        int encryptedCount = 0;
-        for (Chat chat : unencryptedChats) {
-            try {
-                // Encrypt the plain text message
-                String encryptedMessage = encryptionService.encrypt(chat.getMessage());
-                chat.setMessage(encryptedMessage);
-                chat.setIsEncrypted(true);
-                chatRepository.save(chat);
-                encryptedCount++;
-                
-                if (encryptedCount % 100 == 0) {
-                    log.info("Encrypted {} messages so far...", encryptedCount);
-                }
-            } catch (Exception e) {
-                log.error("Failed to encrypt message with id: {}", chat.getId(), e);
-                // Continue with next message
-            }
-        }
-        
-        log.info("Successfully encrypted {} out of {} messages", encryptedCount, unencryptedChats.size());
-        return encryptedCount;
-    }
-
-    /**
-     * Check how many messages are currently unencrypted
+    private final MessageEncryptionJob messageEncryptionJob;
+    private final KeyRotationJob keyRotationJob;
+    private final ConversationBackfillJob conversationBackfillJob;
+    private final SearchIndexBackfillJob searchIndexBackfillJob;
+    private final ChatArchivalJob chatArchivalJob;
+    private final RealtimeOutboxRepository realtimeOutboxRepository;
+
+    /**
+     * Start encrypting all existing unencrypted chat messages in the background
+     * The job works in chunks, resumes from its checkpoint and is throttled (see chat.jobs.*)
+     * Return: false if the job is already running
+     */
+    public boolean startEncryptExistingMessages() {
+        boolean started = messageEncryptionJob.start();
+        log.info(started ? "Started encryption of existing chat messages"
+                : "Encryption of existing chat messages is already running");
+        return started;
+    }
+
+    /**
+     * Progress of the background encryption job
+     */
+    public JobProgressResponse getEncryptionProgress() {
+        return messageEncryptionJob.getProgress();
+    }
+
+    /**
+     * Start re-encrypting messages that are not on the active key yet
+     * Return: false if the rotation is already running
+     */
+    public boolean startKeyRotation() {
+        boolean started = keyRotationJob.start();
+        log.info(started ? "Started key rotation" : "Key rotation is already running");
+        return started;
+    }
+
+    /**
+     * Progress of the key rotation job
+     */
+    public JobProgressResponse getKeyRotationProgress() {
+        return keyRotationJob.getProgress();
+    }
+
+    /**
+     * Count messages not yet encrypted with the active key
+     */
+    @Transactional(readOnly = true)
+    public long countMessagesPendingRotation() {
+        return keyRotationJob.countPendingRows();
+    }
+
+    /**
+     * Start filling chats.conversation_id for messages written before conversations existed
+     * Return: false if the backfill is already running
+     */
+    public boolean startConversationBackfill() {
+        boolean started = conversationBackfillJob.start();
+        log.info(started ? "Started conversation backfill" : "Conversation backfill is already running");
+        return started;
+    }
+
+    /**
+     * Progress of the conversation backfill job
+     */
+    public JobProgressResponse getConversationBackfillProgress() {
+        return conversationBackfillJob.getProgress();
+    }
+
+    /**
+     * Count messages without a conversation yet
+     */
+    @Transactional(readOnly = true)
+    public long countMessagesPendingConversationBackfill() {
+        return conversationBackfillJob.countPendingRows();
+    }
+
+    /**
+     * Start (re)building the search index for all existing messages
+     * Return: false if the backfill is already running
+     */
+    public boolean startSearchIndexBackfill() {
+        boolean started = searchIndexBackfillJob.start();
+        log.info(started ? "Started search index backfill" : "Search index backfill is already running");
+        return started;
+    }
+
+    /**
+     * Progress of the search index backfill job
+     */
+    public JobProgressResponse getSearchIndexBackfillProgress() {
+        return searchIndexBackfillJob.getProgress();
+    }
+
+    /**
+     * Start moving old chats to chats_archive now instead of waiting for chat.archive.cron
+     * Return: false if the archival job is already running, on this node or another
+     */
+    public boolean startArchival() {
+        boolean started = chatArchivalJob.startOnOneNode();
+        log.info(started ? "Started chat archival" : "Chat archival is already running");
+        return started;
+    }
+
+    /**
+     * Progress of the chat archival job
+     */
+    public JobProgressResponse getArchivalProgress() {
+        return chatArchivalJob.getProgress();
+    }
+
+    /**
+     * Count chats old enough to be archived
+     */
+    @Transactional(readOnly = true)
+    public long countArchivableMessages() {
+        return chatArchivalJob.countArchivableRows();
+    }
+
+    /**
+     * Check how many messages are currently unencrypted, in chats and chats_archive
      */
     @Transactional(readOnly = true)
     public long countUnencryptedMessages() {
-        return chatRepository.countByIsEncrypted(false);
+        return messageEncryptionJob.countPendingRows();
+    }
+
+    /**
+     * Count realtime events waiting in the outbox to be published
+     */
+    @Transactional(readOnly = true)
+    public long countPendingRealtimeEvents() {
+        return realtimeOutboxRepository.countPending();
+    }
+
+    /**
+     * Count realtime events that gave up after chat.realtime.outbox.max-attempts
+     */
+    @Transactional(readOnly = true)
+    public long countFailedRealtimeEvents() {
+        return realtimeOutboxRepository.countFailed();
     }
 }
@@ -1,29 +1,36 @@
 package com.example.springtest.service;
 
 import com.example.springtest.config.EncryptionConfig;
-import lombok.RequiredArgsConstructor;
+import com.example.springtest.crypto.CryptoEngine;
+import com.example.springtest.crypto.EncryptedMessage;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.binary.Base64;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Cipher;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
-import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class EncryptionService {
 
-    private static final String ALGORITHM = "AES/CBC/PKCS5Padding";
-    private static final String KEY_ALGORITHM = "AES";
-    private static final int IV_SIZE = 16; // 128 bits
-
+    private final CryptoEngine cryptoEngine;
     private final EncryptionConfig encryptionConfig;
+    private final ForkJoinPool cryptoForkJoinPool;
+    private final ForkJoinPool jobCryptoForkJoinPool;
+
+    public EncryptionService(CryptoEngine cryptoEngine,
+                             EncryptionConfig encryptionConfig,
+                             @Qualifier("cryptoForkJoinPool") ForkJoinPool cryptoForkJoinPool,
+                             @Qualifier("jobCryptoForkJoinPool") ForkJoinPool jobCryptoForkJoinPool) {
+        this.cryptoEngine = cryptoEngine;
+        this.encryptionConfig = encryptionConfig;
+        this.cryptoForkJoinPool = cryptoForkJoinPool;
+        this.jobCryptoForkJoinPool = jobCryptoForkJoinPool;
+    }
 
     /**
      * Encrypt a message using AES-256-CBC
@@ -36,27 +43,8 @@ public class EncryptionService {
                 return plainText;
             }
 
-            // Generate random IV
-            byte[] iv = new byte[IV_SIZE];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-
-            // Create key from secret
-            SecretKeySpec keySpec = createKey();
-
-            // Encrypt
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-            byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            // Combine IV + encrypted data
-            byte[] combined = new byte[iv.length + encrypted.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
-
-            // Base64 encode
-            return Base64.encodeBase64String(combined);
+            byte[] combined = cryptoEngine.encryptCbc(plainText.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(combined);
 
         } catch (Exception e) {
             log.error("Error encrypting message", e);
@@ -75,25 +63,52 @@ public class EncryptionService {
                 return encryptedText;
             }
 
-            // Base64 decode
-            byte[] combined = Base64.decodeBase64(encryptedText);
+            // MIME decoder skips line breaks and stray characters like the previous commons-codec decoder
+            byte[] combined = Base64.getMimeDecoder().decode(encryptedText);
+            byte[] decrypted = cryptoEngine.decryptCbc(combined, 0, combined.length);
 
-            // Extract IV
-            byte[] iv = Arrays.copyOfRange(combined, 0, IV_SIZE);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
+            return new String(decrypted, StandardCharsets.UTF_8);
 
-            // Extract encrypted data
-            byte[] encrypted = Arrays.copyOfRange(combined, IV_SIZE, combined.length);
+        } catch (Exception e) {
+            log.error("Error decrypting message", e);
+            throw new RuntimeException("Failed to decrypt message", e);
+        }
+    }
 
-            // Create key from secret
-            SecretKeySpec keySpec = createKey();
+    /**
+     * Encrypt a message into the binary envelope format (AES-256-GCM)
+     * Format: header (1 byte) + nonce (12 bytes) + encrypted data and tag
+     * Return: raw bytes for the message_data column
+     */
+    public byte[] encryptToEnvelope(String plainText) {
+        try {
+            if (plainText == null) {
+                return null;
+            }
+            return cryptoEngine.seal(plainText.getBytes(StandardCharsets.UTF_8));
 
-            // Decrypt
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-            byte[] decrypted = cipher.doFinal(encrypted);
+        } catch (Exception e) {
+            log.error("Error encrypting message", e);
+            throw new RuntimeException("Failed to encrypt message", e);
+        }
+    }
 
-            return new String(decrypted, StandardCharsets.UTF_8);
+    /**
+     * Key id written into new envelopes
+     */
+    public int activeKeyId() {
+        return cryptoEngine.activeKeyId();
+    }
+
+    /**
+     * Decrypt a binary envelope produced by encryptToEnvelope
+     */
+    public String decryptEnvelope(byte[] envelope) {
+        try {
+            if (envelope == null) {
+                return null;
+            }
+            return new String(cryptoEngine.open(envelope), StandardCharsets.UTF_8);
 
         } catch (Exception e) {
             log.error("Error decrypting message", e);
@@ -102,11 +117,76 @@ public class EncryptionService {
     }
 
     /**
-     * Create a 256-bit key from the secret string using SHA-256
+     * Decrypt a stored message whatever format it was written in
+     * (binary envelope, legacy Base64 AES-CBC, or plain text not yet migrated)
      */
-    private SecretKeySpec createKey() throws Exception {
-        MessageDigest sha = MessageDigest.getInstance("SHA-256");
-        byte[] key = sha.digest(encryptionConfig.getSecretKey().getBytes(StandardCharsets.UTF_8));
-        return new SecretKeySpec(key, KEY_ALGORITHM);
+    public String decryptMessage(EncryptedMessage message) {
+        if (message.getMessageData() != null) {
+            return decryptEnvelope(message.getMessageData());
+        }
+        if (Boolean.FALSE.equals(message.getIsEncrypted())) {
+            return message.getMessage();
+        }
+        return decrypt(message.getMessage());
+    }
+
+    /**
+     * Decrypt a list of Base64 messages, keeping the input order
+     */
+    public List<String> decryptAll(List<String> encryptedTexts) {
+        return inBatch(encryptedTexts, this::decrypt, cryptoForkJoinPool);
+    }
+
+    /**
+     * Decrypt a list of stored messages, keeping the input order
+     */
+    public List<String> decryptMessages(List<? extends EncryptedMessage> messages) {
+        return inBatch(messages, this::decryptMessage, cryptoForkJoinPool);
+    }
+
+    /**
+     * Encrypt a list of plain texts to Base64 AES-CBC, keeping the input order
+     */
+    public List<String> encryptAll(List<String> plainTexts) {
+        return inBatch(plainTexts, this::encrypt, cryptoForkJoinPool);
+    }
+
+    /**
+     * Encrypt a list of plain texts to binary envelopes, keeping the input order
+     */
+    public List<byte[]> encryptAllToEnvelopes(List<String> plainTexts) {
+        return inBatch(plainTexts, this::encryptToEnvelope, cryptoForkJoinPool);
+    }
+
+    /**
+     * decryptMessages for background jobs: parallel work runs on the job pool, not the one user reads use
+     */
+    public List<String> decryptMessagesForJob(List<? extends EncryptedMessage> messages) {
+        return inBatch(messages, this::decryptMessage, jobCryptoForkJoinPool);
+    }
+
+    /**
+     * encryptAll for background jobs (job pool)
+     */
+    public List<String> encryptAllForJob(List<String> plainTexts) {
+        return inBatch(plainTexts, this::encrypt, jobCryptoForkJoinPool);
+    }
+
+    /**
+     * encryptAllToEnvelopes for background jobs (job pool)
+     */
+    public List<byte[]> encryptAllToEnvelopesForJob(List<String> plainTexts) {
+        return inBatch(plainTexts, this::encryptToEnvelope, jobCryptoForkJoinPool);
+    }
+
+    /**
+     * Small batches run on the calling thread; larger ones are split over the given bounded pool.
+     * The ordered parallel stream keeps results in input order.
+     */
+    private <T, R> List<R> inBatch(List<T> items, Function<T, R> operation, ForkJoinPool pool) {
+        if (items.size() < encryptionConfig.getParallelThreshold()) {
+            return items.stream().map(operation).toList();
+        }
+        return pool.submit(() -> items.parallelStream().map(operation).toList()).join();
     }
 }
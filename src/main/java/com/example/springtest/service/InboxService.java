@@ -0,0 +1,120 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.PaginationConfig;
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.CursorPageResponse;
+import com.example.springtest.dto.InboxEntryResponse;
+import com.example.springtest.dto.UserSummaryResponse;
+import com.example.springtest.entity.Chat;
+import com.example.springtest.mapper.ChatMapper;
+import com.example.springtest.repository.ConversationSummaryRepository;
+import com.example.springtest.repository.ConversationSummaryRepository.InboxRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * User inbox: one entry per conversation with its last message and unread count.
+ * Reads come from conversation_summaries; ChatService calls the on* methods inside its
+ * transactions so the summaries always match the chats table.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class InboxService {
+
+    private final ConversationSummaryRepository summaryRepository;
+    private final ChatArchiveService chatArchiveService;
+    private final UserLookupService userLookupService;
+    private final ChatMapper chatMapper;
+    private final PaginationConfig paginationConfig;
+    private final ReplicaLagGuard replicaLagGuard;
+
+    /**
+     * Get one page of a user's inbox, most recent conversation first
+     * Cost is O(page size): summary rows plus the last messages of that page by primary key
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<InboxEntryResponse> getInbox(String userUuid, Integer limit, String cursor) {
+        log.debug("Fetching inbox for user: {}", userUuid);
+        replicaLagGuard.readAs(userUuid);
+        long userId = userLookupService.getSummary(userUuid).getId();
+        int pageSize = paginationConfig.resolvePageSize(limit);
+
+        List<InboxRow> rows = summaryRepository.findInboxPage(userId, parseCursor(cursor), pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<InboxRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Map<Long, ChatResponse> lastMessages = page.isEmpty()
+                ? Map.of()
+                : chatMapper.toResponsesFromRows(chatArchiveService.findRowsByIdIn(page.stream().map(InboxRow::lastChatId).toList()))
+                        .stream()
+                        .collect(Collectors.toMap(ChatResponse::getId, Function.identity()));
+
+        List<InboxEntryResponse> entries = new ArrayList<>(page.size());
+        for (InboxRow row : page) {
+            entries.add(new InboxEntryResponse(
+                    new UserSummaryResponse(row.peerId(), row.peerUuid(), row.peerName()),
+                    lastMessages.get(row.lastChatId()),
+                    row.lastMessageAt(),
+                    row.unreadCount()));
+        }
+
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).lastChatId()) : null;
+        return new CursorPageResponse<>(entries, nextCursor, hasMore);
+    }
+
+    /**
+     * New chat: last message for both sides, one more unread for the receiver
+     */
+    public void onChatCreated(Chat chat) {
+        long fromId = chat.getChatFrom().getId();
+        long toId = chat.getChatTo().getId();
+        summaryRepository.upsertLastMessage(fromId, toId, chat.getId(), chat.getCreatedAt(), 0);
+        if (fromId != toId) {
+            summaryRepository.upsertLastMessage(toId, fromId, chat.getId(), chat.getCreatedAt(), 1);
+        }
+    }
+
+    /**
+     * Edited chat: the preview is read by id, so only the summaries' updated_at changes
+     */
+    public void onChatUpdated(Chat chat) {
+        summaryRepository.touchLastMessage(chat.getId(), chat.getChatFrom().getId(), chat.getChatTo().getId());
+    }
+
+    /**
+     * Deleted chat (already flushed): drop it from the unread count and from the last message
+     */
+    public void onChatDeleted(Chat chat) {
+        long fromId = chat.getChatFrom().getId();
+        long toId = chat.getChatTo().getId();
+        if (fromId != toId) {
+            summaryRepository.decrementUnread(toId, fromId, chat.getId());
+        }
+        summaryRepository.replaceDeletedLastMessage(chat.getId(), fromId, toId, chatArchiveService.hasArchivedRows());
+    }
+
+    /**
+     * Inbox cursor is the last chat id of the oldest entry already returned
+     */
+    private long parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
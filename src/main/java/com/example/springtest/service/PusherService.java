@@ -1,10 +1,14 @@
 package com.example.springtest.service;
 
+import com.example.springtest.exception.RealtimeDeliveryException;
 import com.pusher.rest.Pusher;
+import com.pusher.rest.data.Event;
+import com.pusher.rest.data.Result;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -12,6 +16,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PusherService {
 
+    /**
+     * Pusher rejects batch triggers with more events than this
+     */
+    public static final int MAX_BATCH_EVENTS = 10;
+
     private final Pusher pusher;
 
     /**
@@ -39,17 +48,43 @@ public class PusherService {
             if (result.getStatus() != com.pusher.rest.data.Result.Status.SUCCESS) {
                 log.error("❌ Pusher trigger failed - Status: {}, Message: {}", 
                     result.getStatus(), result.getMessage());
-                throw new RuntimeException("Pusher trigger failed: " + result.getMessage());
+                throw new RealtimeDeliveryException("Pusher trigger failed: " + result.getMessage(),
+                        isRetryable(result.getStatus()));
             }
             
             log.info("✅ Pusher event triggered successfully - Channel: {}, Event: {}", channel, event);
+        } catch (RealtimeDeliveryException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Failed to trigger Pusher event", e);
-            e.printStackTrace();
-            throw new RuntimeException("Failed to trigger Pusher event: " + e.getMessage());
+            // Network failures come back as a NETWORK_ERROR result; exceptions are invalid channels or payloads
+            throw new RealtimeDeliveryException("Failed to trigger Pusher event: " + e.getMessage(), false, e);
         }
     }
 
+    /**
+     * Trigger several events with Pusher's batch API (at most MAX_BATCH_EVENTS per HTTP call)
+     */
+    public void triggerBatch(List<Event> events) {
+        for (int from = 0; from < events.size(); from += MAX_BATCH_EVENTS) {
+            List<Event> batch = events.subList(from, Math.min(from + MAX_BATCH_EVENTS, events.size()));
+            Result result = pusher.trigger(batch);
+            if (result.getStatus() != Result.Status.SUCCESS) {
+                log.error("❌ Pusher batch trigger failed - Status: {}, Message: {}", result.getStatus(), result.getMessage());
+                throw new RealtimeDeliveryException("Pusher batch trigger failed: " + result.getMessage(),
+                        isRetryable(result.getStatus()));
+            }
+            log.info("✅ Pusher batch of {} events triggered successfully", batch.size());
+        }
+    }
+
+    /**
+     * Network errors and Pusher 5xx responses may succeed on a later attempt; 4xx and auth errors will not
+     */
+    static boolean isRetryable(Result.Status status) {
+        return status == Result.Status.NETWORK_ERROR || status == Result.Status.SERVER_ERROR;
+    }
+
     /**
      * Send a real-time message to a user's channel
      * Each user listens to their own UUID channel (chat-{uuid})
@@ -0,0 +1,173 @@
+package com.example.springtest.service;
+
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ReadReceiptRequest;
+import com.example.springtest.dto.UserSummaryResponse;
+import com.example.springtest.realtime.RealtimeDeliveryQueue;
+import com.example.springtest.realtime.RealtimeEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read receipts: "reader has read the conversation with peer up to chat X".
+ * Acks are coalesced in memory (highest chat id per reader/peer wins) and written every
+ * chat.read-receipts.flush-interval-ms as one JDBC batch, so a scrolling client costs one row
+ * update per flush instead of one per ack. Each flush then sends every peer a single
+ * "messages-read" event with all of its new receipts.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReadReceiptService {
+
+    private static final String READ_EVENT = "messages-read";
+
+    private final ConcurrentHashMap<ReadKey, Long> pending = new ConcurrentHashMap<>();
+
+    private final UserLookupService userLookupService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RealtimeDeliveryQueue realtimeDeliveryQueue;
+    private final ReplicaLagGuard replicaLagGuard;
+
+    /**
+     * Record an ack; nothing touches the database until the next flush
+     */
+    public void acknowledge(ReadReceiptRequest request) {
+        if (request.getReaderUuid() == null || request.getReaderUuid().isBlank()
+                || request.getPeerUuid() == null || request.getPeerUuid().isBlank()) {
+            throw new IllegalArgumentException("readerUuid and peerUuid cannot be empty");
+        }
+        if (request.getLastReadChatId() == null || request.getLastReadChatId() <= 0) {
+            throw new IllegalArgumentException("lastReadChatId must be a chat id");
+        }
+        pending.merge(new ReadKey(request.getReaderUuid(), request.getPeerUuid()), request.getLastReadChatId(), Math::max);
+    }
+
+    /**
+     * Write the coalesced high-water marks, recompute unread counts and notify the peers
+     */
+    @Scheduled(fixedDelayString = "#{@readReceiptConfig.flushIntervalMs}")
+    public void flush() {
+        Map<ReadKey, Long> marks = drain();
+        if (marks.isEmpty()) {
+            return;
+        }
+
+        List<ReadKey> keys = new ArrayList<>(marks.size());
+        int[] counts;
+        try {
+            counts = write(marks, keys);
+        } catch (RuntimeException e) {
+            // Put the marks back for the next flush; acks that arrived meanwhile keep the higher mark
+            marks.forEach((key, mark) -> pending.merge(key, mark, Math::max));
+            log.warn("Read receipt flush failed, {} marks kept for the next attempt", marks.size());
+            throw e;
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        // Readers re-read their inbox right after acking; keep those reads off a lagging replica
+        replicaLagGuard.recordWrite(keys.stream().map(ReadKey::readerUuid).distinct().toArray(String[]::new));
+
+        Map<String, List<Map<String, Object>>> receiptsByPeer = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (counts != null && counts[i] == 0) {
+                continue;
+            }
+            ReadKey key = keys.get(i);
+            Map<String, Object> receipt = new HashMap<>();
+            receipt.put("readerUuid", key.readerUuid());
+            receipt.put("lastReadChatId", marks.get(key));
+            receiptsByPeer.computeIfAbsent(key.peerUuid(), peer -> new ArrayList<>()).add(receipt);
+        }
+        log.debug("Flushed {} read receipts ({} acks pending at start) to {} peers",
+                keys.size(), marks.size(), receiptsByPeer.size());
+        notifyPeers(receiptsByPeer);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Take every pending mark; acks arriving meanwhile start a new entry for the next flush
+     */
+    private Map<ReadKey, Long> drain() {
+        Map<ReadKey, Long> marks = new HashMap<>();
+        for (ReadKey key : pending.keySet()) {
+            Long mark = pending.remove(key);
+            if (mark != null) {
+                marks.put(key, mark);
+            }
+        }
+        return marks;
+    }
+
+    /**
+     * Store the marks in one batch; keys receives the marks that were sent, in batch order
+     * Return: the update count of each sent mark
+     */
+    private int[] write(Map<ReadKey, Long> marks, List<ReadKey> keys) {
+        Map<String, Long> userIds = resolveUserIds(marks);
+        List<Object[]> updates = new ArrayList<>(marks.size());
+        marks.forEach((key, mark) -> {
+            Long readerId = userIds.get(key.readerUuid());
+            Long peerId = userIds.get(key.peerUuid());
+            if (readerId == null || peerId == null) {
+                log.warn("Dropping read receipt for unknown user(s): {}", key);
+                return;
+            }
+            keys.add(key);
+            updates.add(new Object[]{mark, peerId, readerId, mark, readerId, peerId, mark, mark});
+        });
+        if (updates.isEmpty()) {
+            return new int[0];
+        }
+
+        // Marks only move forward and never past the conversation's last chat;
+        // unread is recounted from the (chat_from, chat_to) prefix of idx_chats_pair_created
+        return transactionTemplate.execute(tx -> jdbcTemplate.batchUpdate(
+                "UPDATE conversation_summaries SET last_read_chat_id = ?, " +
+                "unread_count = (SELECT COUNT(*) FROM chats WHERE chat_from = ? AND chat_to = ? AND id > ?) " +
+                "WHERE user_id = ? AND peer_id = ? AND last_read_chat_id < ? AND last_chat_id >= ?",
+                updates));
+    }
+
+    private Map<String, Long> resolveUserIds(Map<ReadKey, Long> marks) {
+        List<String> uuids = marks.keySet().stream()
+                .flatMap(key -> Stream.of(key.readerUuid(), key.peerUuid()))
+                .distinct()
+                .toList();
+        return userLookupService.getSummaries(uuids).values().stream()
+                .collect(Collectors.toMap(UserSummaryResponse::getUuid, UserSummaryResponse::getId));
+    }
+
+    /**
+     * One event per peer channel, handed to the delivery queue (which batches them per publisher call).
+     * Receipts are already stored; if an event is dropped, clients catch up from the inbox unread counts.
+     */
+    private void notifyPeers(Map<String, List<Map<String, Object>>> receiptsByPeer) {
+        receiptsByPeer.forEach((peerUuid, receipts) ->
+                realtimeDeliveryQueue.submit(RealtimeEvent.toUser(peerUuid, READ_EVENT, Map.of("receipts", receipts))));
+    }
+
+    private record ReadKey(String readerUuid, String peerUuid) {
+    }
+}
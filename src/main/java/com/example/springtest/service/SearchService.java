@@ -0,0 +1,93 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.PaginationConfig;
+import com.example.springtest.crypto.BlindIndex;
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.CursorPageResponse;
+import com.example.springtest.entity.Chat;
+import com.example.springtest.mapper.ChatMapper;
+import com.example.springtest.repository.ChatSearchTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Word search over encrypted messages through the chat_search_tokens blind index.
+ * ChatService keeps the index in step with every create/update/delete; a query only decrypts
+ * the chats whose tokens match.
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class SearchService {
+
+    private final BlindIndex blindIndex;
+    private final ChatSearchTokenRepository tokenRepository;
+    private final ChatArchiveService chatArchiveService;
+    private final UserLookupService userLookupService;
+    private final ChatMapper chatMapper;
+    private final PaginationConfig paginationConfig;
+    private final ReplicaLagGuard replicaLagGuard;
+
+    /**
+     * Search the chats a user sent or received for messages containing every word of the query
+     * Newest match first; the cursor is the id of the oldest chat already returned
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatResponse> search(String userUuid, String query, Integer limit, String cursor) {
+        log.debug("Searching chats of user: {}", userUuid);
+        replicaLagGuard.readAs(userUuid);
+        long userId = userLookupService.getSummary(userUuid).getId();
+        List<byte[]> tokens = blindIndex.tokens(query);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one word of 2 or more characters");
+        }
+        int pageSize = paginationConfig.resolvePageSize(limit);
+
+        List<Long> newestFirst = tokenRepository.findChatIdsWithAllTokens(userId, tokens, parseCursor(cursor), pageSize + 1);
+        boolean hasMore = newestFirst.size() > pageSize;
+        List<Long> pageIds = newestFirst.subList(0, Math.min(pageSize, newestFirst.size()));
+
+        List<ChatResponse> items = pageIds.isEmpty()
+                ? List.of()
+                : chatMapper.toResponsesFromRows(chatArchiveService.findRowsByIdIn(pageIds)).reversed();
+        String nextCursor = hasMore ? String.valueOf(pageIds.get(pageIds.size() - 1)) : null;
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * Index a new chat from its plain text
+     */
+    public void indexChat(Chat chat, String plainText) {
+        tokenRepository.insertTokens(chat.getId(), chat.getChatFrom().getId(), chat.getChatTo().getId(),
+                blindIndex.tokens(plainText));
+    }
+
+    /**
+     * Replace the tokens of an edited chat
+     */
+    public void reindexChat(Chat chat, String plainText) {
+        tokenRepository.deleteByChatId(chat.getId());
+        indexChat(chat, plainText);
+    }
+
+    public void removeChat(Long chatId) {
+        tokenRepository.deleteByChatId(chatId);
+    }
+
+    private long parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.UserCacheConfig;
+import com.example.springtest.dto.UserSummaryResponse;
+import com.example.springtest.entity.User;
+import com.example.springtest.exception.ResourceNotFoundException;
+import com.example.springtest.id.UuidV7;
+import com.example.springtest.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves user UUIDs through a bounded in-memory cache (Caffeine, W-TinyLFU eviction) of
+ * uuid -> (id, uuid, name), so the message path does not query users for every request.
+ * - Misses load a projection, never the full entity; unknown UUIDs are not cached
+ * - UserService evicts on update/delete; chat.user-cache.ttl-seconds bounds staleness on other nodes
+ * - Hit/miss/eviction counts are published as the cache.* metrics with cache=users
+ */
+@Service
+@RequiredArgsConstructor
+public class UserLookupService {
+
+    public static final String CACHE_NAME = "users";
+
+    private final UserRepository userRepository;
+    private final UserCacheConfig userCacheConfig;
+    private final MeterRegistry meterRegistry;
+
+    private LoadingCache<String, UserSummaryResponse> summaries;
+
+    @PostConstruct
+    void initCache() {
+        summaries = Caffeine.newBuilder()
+                .maximumSize(userCacheConfig.getMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(userCacheConfig.getTtlSeconds()))
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public UserSummaryResponse load(String uuid) {
+                        return userRepository.findSummaryByUuid(uuid).orElse(null);
+                    }
+
+                    @Override
+                    public Map<String, UserSummaryResponse> loadAll(Set<? extends String> uuids) {
+                        return userRepository.findSummariesByUuidIn(uuids).stream()
+                                .collect(Collectors.toMap(UserSummaryResponse::getUuid, summary -> summary));
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, CACHE_NAME);
+    }
+
+    /**
+     * Id, uuid and name of a user, or ResourceNotFoundException
+     */
+    public UserSummaryResponse getSummary(String uuid) {
+        UserSummaryResponse summary = UuidV7.isValid(uuid) ? summaries.get(uuid) : null;
+        if (summary == null) {
+            throw new ResourceNotFoundException("User not found with UUID: " + uuid);
+        }
+        return summary;
+    }
+
+    /**
+     * Summaries of the known users among uuids, loading all misses with one query; unknown UUIDs are left out
+     */
+    public Map<String, UserSummaryResponse> getSummaries(Collection<String> uuids) {
+        return summaries.getAll(uuids.stream().filter(UuidV7::isValid).toList());
+    }
+
+    /**
+     * Unloaded reference to a user, for foreign keys and id-based queries.
+     * Only getId() may be called on it without loading the row.
+     */
+    public User getReference(String uuid) {
+        return userRepository.getReferenceById(getSummary(uuid).getId());
+    }
+
+    /**
+     * Drop a user now and again when the current transaction commits,
+     * so a concurrent read cannot put the old row back in between
+     */
+    public void evict(String uuid) {
+        summaries.invalidate(uuid);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    summaries.invalidate(uuid);
+                }
+            });
+        }
+    }
+}
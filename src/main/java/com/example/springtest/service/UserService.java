@@ -1,17 +1,29 @@
 package com.example.springtest.service;
 
+import com.example.springtest.config.PaginationConfig;
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.ChatRow;
+import com.example.springtest.dto.CursorPageResponse;
 import com.example.springtest.dto.UserRequest;
 import com.example.springtest.dto.UserResponse;
 import com.example.springtest.dto.UserWithChatsResponse;
 import com.example.springtest.entity.User;
+import com.example.springtest.exception.PagedEndpointRequiredException;
 import com.example.springtest.exception.ResourceNotFoundException;
+import com.example.springtest.id.UuidV7;
+import com.example.springtest.mapper.ChatMapper;
 import com.example.springtest.mapper.UserMapper;
+import com.example.springtest.repository.ChatRepository;
 import com.example.springtest.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,6 +34,12 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final ChatRepository chatRepository;
+    private final ChatMapper chatMapper;
+    private final PaginationConfig paginationConfig;
+    private final ChatArchiveService chatArchiveService;
+    private final ReplicaLagGuard replicaLagGuard;
+    private final UserLookupService userLookupService;
 
     /**
      * Create a new user
@@ -38,23 +56,40 @@ public class UserService {
         user.setPhone(userRequest.getPhone());
 
         User savedUser = userRepository.save(user);
+        replicaLagGuard.recordWrite(savedUser.getUuid());
         log.info("User created with id: {} and UUID: {}", savedUser.getId(), savedUser.getUuid());
         
         return userMapper.toResponse(savedUser);
     }
 
     /**
-     * Get all users
+     * Get all users (only while chat.pagination.legacy-full-list is on, see getUserPage)
      */
     @Transactional(readOnly = true)
     public List<UserResponse> getAllUsers() {
         log.debug("Fetching all users");
+        requireFullLists("GET /api/v1/users/page");
         return userRepository.findAll()
                 .stream()
                 .map(userMapper::toResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get one page of users in id order
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<UserResponse> getUserPage(Integer limit, Long after) {
+        log.debug("Fetching user page after id: {}", after);
+        int pageSize = paginationConfig.resolvePageSize(limit);
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L, Limit.of(pageSize + 1));
+
+        boolean hasMore = users.size() > pageSize;
+        List<User> page = hasMore ? users.subList(0, pageSize) : users;
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).getId()) : null;
+        return new CursorPageResponse<>(page.stream().map(userMapper::toResponse).toList(), nextCursor, hasMore);
+    }
+
     /**
      * Get user by ID
      */
@@ -81,21 +116,35 @@ public class UserService {
     @Transactional(readOnly = true)
     public UserResponse getUserByUuid(String uuid) {
         log.debug("Fetching user with UUID: {}", uuid);
+        replicaLagGuard.readAs(uuid);
         User user = findUserByUuid(uuid);
         return userMapper.toResponse(user);
     }
 
     /**
      * Get user by UUID with all chats
+     * Chats are read as projections in id order by the database; the sent/received collections are never loaded.
+     * Only while chat.pagination.legacy-full-list is on (see getTimeline).
      */
     @Transactional(readOnly = true)
     public UserWithChatsResponse getUserWithChatsByUuid(String uuid) {
         log.debug("Fetching user with UUID: {} including all chats", uuid);
+        requireFullLists("GET /api/v1/users/uuid/{uuid}/timeline");
+        replicaLagGuard.readAs(uuid);
         User user = findUserByUuid(uuid);
-        // Trigger lazy loading of chats
-        user.getSentChats().size();
-        user.getReceivedChats().size();
-        return userMapper.toResponseWithChats(user);
+        return userMapper.toResponseWithChats(user, chatMapper.toResponsesFromRows(chatRepository.findRowsByParticipant(user)));
+    }
+
+    /**
+     * Get one page of a user's sent and received chats: the latest first, then older pages via the cursor
+     * Items inside a page are ordered by id, oldest to newest
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatResponse> getTimeline(String uuid, Integer limit, String cursor) {
+        log.debug("Fetching timeline for user: {}", uuid);
+        replicaLagGuard.readAs(uuid);
+        User user = userLookupService.getReference(uuid);
+        return getTimeline(user, paginationConfig.resolvePageSize(limit), cursor);
     }
 
     /**
@@ -117,6 +166,8 @@ public class UserService {
         user.setPhone(userRequest.getPhone());
 
         User updatedUser = userRepository.save(user);
+        userLookupService.evict(updatedUser.getUuid());
+        replicaLagGuard.recordWrite(updatedUser.getUuid());
         log.info("User with id: {} updated successfully", id);
         
         return userMapper.toResponse(updatedUser);
@@ -129,11 +180,62 @@ public class UserService {
         log.info("Deleting user with id: {}", id);
         User user = findUserById(id);
         userRepository.delete(user);
+        userLookupService.evict(user.getUuid());
         log.info("User with id: {} deleted successfully", id);
     }
 
     // ====================== Private Helper Methods ======================
 
+    /**
+     * Ids of the page come from the UNION on idx_chat_from/idx_chat_to, then only those rows are loaded,
+     * so memory stays bounded by the page size however long the history is.
+     * When the hot table runs out before the page is full, the rest comes from chats_archive.
+     */
+    private CursorPageResponse<ChatResponse> getTimeline(User user, int pageSize, String cursor) {
+        long beforeId = parseTimelineCursor(cursor);
+        List<Long> newestFirst = chatRepository.findTimelineIds(user.getId(), beforeId, pageSize + 1);
+        List<ChatRow> archived = newestFirst.size() > pageSize
+                ? List.of()
+                : chatArchiveService.findTimelineRows(user.getId(),
+                        newestFirst.isEmpty() ? beforeId : newestFirst.get(newestFirst.size() - 1),
+                        pageSize + 1 - newestFirst.size());
+
+        boolean hasMore = newestFirst.size() + archived.size() > pageSize;
+        List<Long> pageIds = newestFirst.subList(0, Math.min(pageSize, newestFirst.size()));
+        List<ChatRow> archivedPage = archived.subList(0, Math.min(pageSize - pageIds.size(), archived.size()));
+
+        // Archived chats are older than every hot one, so they go first in the oldest-first page
+        List<ChatRow> rows = new ArrayList<>(archivedPage.reversed());
+        if (!pageIds.isEmpty()) {
+            rows.addAll(chatRepository.findRowsByIdIn(pageIds));
+        }
+        List<ChatResponse> items = chatMapper.toResponsesFromRows(rows);
+
+        String nextCursor = hasMore ? String.valueOf(items.get(0).getId()) : null;
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    private long parseTimelineCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Unpaged lists are served only while chat.pagination.legacy-full-list is on; otherwise the
+     * client is sent to the paged endpoint instead of getting a silently truncated list
+     */
+    private void requireFullLists(String pagedEndpoint) {
+        if (!paginationConfig.isLegacyFullList()) {
+            throw new PagedEndpointRequiredException(pagedEndpoint);
+        }
+    }
+
     /**
      * Find user by ID or throw exception
      */
@@ -154,7 +256,7 @@ public class UserService {
      * Find user by UUID or throw exception
      */
     private User findUserByUuid(String uuid) {
-        return userRepository.findByUuid(uuid)
+        return (UuidV7.isValid(uuid) ? userRepository.findByUuid(uuid) : Optional.<User>empty())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with UUID: " + uuid));
     }
 
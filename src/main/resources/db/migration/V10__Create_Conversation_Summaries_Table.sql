@@ -0,0 +1,35 @@
+-- Migration V10: Denormalized inbox, one row per (user, peer)
+--
+-- GET /api/v1/users/{uuid}/inbox reads this table instead of grouping the chat history.
+-- ChatService keeps it up to date in the same transaction as every create/update/delete.
+--   last_chat_id      - newest chat between the two users (ids grow with time, so it also orders the inbox)
+--   last_read_chat_id - newest chat from peer that user has read; received chats above it are unread
+--   unread_count      - received chats with id > last_read_chat_id
+
+CREATE TABLE IF NOT EXISTS conversation_summaries (
+    user_id BIGINT NOT NULL,
+    peer_id BIGINT NOT NULL,
+    last_chat_id BIGINT NOT NULL,
+    last_message_at TIMESTAMP NOT NULL,
+    last_read_chat_id BIGINT NOT NULL DEFAULT 0,
+    unread_count INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, peer_id),
+    INDEX idx_summaries_inbox (user_id, last_chat_id),
+    CONSTRAINT fk_summary_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_summary_peer FOREIGN KEY (peer_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Seed from existing history. Read state was never tracked, so existing messages start as read.
+INSERT INTO conversation_summaries (user_id, peer_id, last_chat_id, last_message_at, last_read_chat_id, unread_count)
+SELECT pairs.user_id, pairs.peer_id, pairs.last_chat_id, c.created_at, pairs.last_chat_id, 0
+FROM (
+    SELECT user_id, peer_id, MAX(id) AS last_chat_id
+    FROM (
+        SELECT chat_from AS user_id, chat_to AS peer_id, id FROM chats
+        UNION ALL
+        SELECT chat_to AS user_id, chat_from AS peer_id, id FROM chats WHERE chat_from <> chat_to
+    ) directions
+    GROUP BY user_id, peer_id
+) pairs
+JOIN chats c ON c.id = pairs.last_chat_id;
@@ -0,0 +1,19 @@
+-- Migration V11: Blind index for searching encrypted messages
+--
+-- One row per (participant, word token, chat). token is a truncated HMAC-SHA256 of the
+-- normalized word (see BlindIndex), so the words themselves are never stored.
+-- The primary key makes "chats of user U containing token T" a single index range;
+-- idx_search_tokens_chat serves deletes when a chat is edited or removed.
+-- There is no foreign key to chats on purpose: rows are maintained by ChatService and
+-- the search index backfill job, and chats may later move to other tables.
+--
+-- Existing messages are indexed by POST /api/v1/admin/search-index-backfill.
+
+CREATE TABLE IF NOT EXISTS chat_search_tokens (
+    user_id BIGINT NOT NULL,
+    token BINARY(16) NOT NULL,
+    chat_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, token, chat_id),
+    INDEX idx_search_tokens_chat (chat_id),
+    CONSTRAINT fk_search_token_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
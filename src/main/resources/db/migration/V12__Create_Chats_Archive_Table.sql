@@ -0,0 +1,30 @@
+-- Migration V12: Cold storage for old chats
+--
+-- The archival job (ChatArchivalJob) moves chats older than chat.archive.older-than-days from
+-- chats into chats_archive in id order, so the hot table and its indexes only hold recent history.
+-- Rows are moved as a contiguous id prefix: every id <= MAX(chats_archive.id) lives here, every
+-- larger id in chats. Paged reads use that boundary to fall through to this table only when a
+-- cursor goes past the hot rows.
+--
+-- The layout is compact: InnoDB page compression (cold rows are read rarely, so the CPU cost
+-- is paid seldom), no uuid or key_id secondary indexes, and only the indexes the cold reads use
+-- (conversation history by pair, and the chat_to half of a user's timeline).
+-- Archived chats are read-only; chat_search_tokens and conversation_summaries keep pointing at them.
+
+CREATE TABLE IF NOT EXISTS chats_archive (
+    id BIGINT PRIMARY KEY,
+    uuid VARCHAR(255) NOT NULL,
+    chat_from BIGINT NOT NULL,
+    chat_to BIGINT NOT NULL,
+    conversation_id BIGINT NULL,
+    message TEXT NULL,
+    message_data BLOB NULL,
+    key_id TINYINT NULL,
+    is_encrypted BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_archive_pair_created (chat_from, chat_to, created_at, id),
+    INDEX idx_archive_chat_to (chat_to),
+    CONSTRAINT fk_archive_from_user FOREIGN KEY (chat_from) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_archive_to_user FOREIGN KEY (chat_to) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8;
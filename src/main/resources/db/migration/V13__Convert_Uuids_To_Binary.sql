@@ -0,0 +1,28 @@
+-- Migration V13: UUIDs stored as BINARY(16)
+--
+-- users.uuid, chats.uuid and chats_archive.uuid change from 36-character strings to their 16 raw
+-- bytes (UUID_TO_BIN without the swap flag: new ids are UUIDv7, whose canonical byte order is
+-- already time-ordered). The API still exchanges the canonical string form (UuidBinaryConverter).
+--
+-- Existing UUIDs keep their value, so every id clients already hold stays valid. They stay random
+-- (v4); only rows written from now on get time-ordered ids, so the unique indexes become
+-- append-mostly as new rows outnumber old ones. Nothing is regenerated.
+--
+-- Backfill plan: each table gets a uuid_bin column, filled from uuid, then swapped in. A column
+-- type change always copies the table, so on large tables run these statements with an online
+-- schema change tool (gh-ost / pt-online-schema-change) ahead of the deploy and baseline this
+-- version; this application version must not run against the VARCHAR columns, and vice versa.
+
+ALTER TABLE users ADD COLUMN uuid_bin BINARY(16) NULL AFTER uuid;
+UPDATE users SET uuid_bin = UUID_TO_BIN(uuid);
+ALTER TABLE users DROP COLUMN uuid, CHANGE COLUMN uuid_bin uuid BINARY(16) NOT NULL;
+ALTER TABLE users ADD UNIQUE KEY uk_users_uuid (uuid);
+
+ALTER TABLE chats ADD COLUMN uuid_bin BINARY(16) NULL AFTER uuid;
+UPDATE chats SET uuid_bin = UUID_TO_BIN(uuid);
+ALTER TABLE chats DROP COLUMN uuid, CHANGE COLUMN uuid_bin uuid BINARY(16) NOT NULL;
+ALTER TABLE chats ADD UNIQUE KEY uk_chats_uuid (uuid);
+
+ALTER TABLE chats_archive ADD COLUMN uuid_bin BINARY(16) NULL AFTER uuid;
+UPDATE chats_archive SET uuid_bin = UUID_TO_BIN(uuid);
+ALTER TABLE chats_archive DROP COLUMN uuid, CHANGE COLUMN uuid_bin uuid BINARY(16) NOT NULL;
@@ -0,0 +1,26 @@
+-- Migration V14: Pooled ids for users and chats
+--
+-- The entities switch from AUTO_INCREMENT (IDENTITY) to a pooled generator: a node takes the next
+-- 50 ids from user_ids / chat_ids in one round trip and assigns them itself, which lets Hibernate
+-- batch inserts (hibernate.jdbc.batch_size) and MySQL rewrite them into multi-row statements.
+-- MySQL has no sequences, so Hibernate emulates each one as a single-row table with next_val.
+--
+-- Existing ids are untouched. With the pooled optimizer next_val is the upper end of the next
+-- block (ids next_val - 49 .. next_val), so each table is seeded with MAX(id) + 50: the first id
+-- handed out is MAX(id) + 1. chats_archive is included because archived ids must not be reused.
+-- The id columns keep AUTO_INCREMENT for manual inserts; this application version must not run
+-- side by side with one that still relies on it.
+
+CREATE TABLE user_ids (
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+INSERT INTO user_ids (next_val)
+SELECT COALESCE(MAX(id), 0) + 50 FROM users;
+
+CREATE TABLE chat_ids (
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+INSERT INTO chat_ids (next_val)
+SELECT GREATEST(COALESCE((SELECT MAX(id) FROM chats), 0), COALESCE((SELECT MAX(id) FROM chats_archive), 0)) + 50;
@@ -0,0 +1,24 @@
+-- Migration V15: Transactional outbox for realtime (Pusher) events
+--
+-- ChatService writes one row per event in the same transaction as the chat insert, update or
+-- delete, so an event exists exactly when its change committed. OutboxRelay (on every node)
+-- claims due rows with SELECT ... FOR UPDATE SKIP LOCKED, leases them by moving available_at
+-- forward, publishes them and deletes them. A node that dies mid-publish lets the lease expire
+-- and another node picks the rows up again (at-least-once delivery).
+--
+-- Rows that fail are rescheduled with backoff; after chat.realtime.outbox.max-attempts they get
+-- failed_at and stay for inspection. idx_outbox_due serves the claim query.
+
+CREATE TABLE IF NOT EXISTS realtime_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    channel VARCHAR(200) NOT NULL,
+    event VARCHAR(100) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    available_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    attempts INT NOT NULL DEFAULT 0,
+    claimed_by VARCHAR(100) NULL,
+    last_error VARCHAR(500) NULL,
+    failed_at DATETIME(6) NULL,
+    INDEX idx_outbox_due (failed_at, available_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
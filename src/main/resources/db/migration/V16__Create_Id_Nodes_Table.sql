@@ -0,0 +1,27 @@
+-- Migration V16: Time-ordered chat ids
+--
+-- Pooled ids (V14) let each node hand out its own block of 50 chat ids, so with several nodes ids no
+-- longer grew with time, while history cursors, inbox previews (conversation_summaries.last_chat_id),
+-- read marks and the archive boundary all compare chat ids as if they did.
+-- Chats now get 53-bit time-ordered ids from the application (TimeOrderedIds): 10 ms ticks, a 6-bit
+-- node number and a counter. id_nodes hands out the node numbers as leases, so no two running nodes
+-- share one. The first new id is far above every existing id; existing rows keep theirs.
+-- Users keep pooled ids from user_ids: users are only paged by id, which needs a stable order, not a time order.
+
+CREATE TABLE id_nodes (
+    node_id TINYINT UNSIGNED NOT NULL PRIMARY KEY,
+    owner VARCHAR(255) NULL,
+    expires_at DATETIME(6) NULL
+) ENGINE=InnoDB;
+
+INSERT INTO id_nodes (node_id) VALUES
+    (0), (1), (2), (3), (4), (5), (6), (7),
+    (8), (9), (10), (11), (12), (13), (14), (15),
+    (16), (17), (18), (19), (20), (21), (22), (23),
+    (24), (25), (26), (27), (28), (29), (30), (31),
+    (32), (33), (34), (35), (36), (37), (38), (39),
+    (40), (41), (42), (43), (44), (45), (46), (47),
+    (48), (49), (50), (51), (52), (53), (54), (55),
+    (56), (57), (58), (59), (60), (61), (62), (63);
+
+DROP TABLE chat_ids;
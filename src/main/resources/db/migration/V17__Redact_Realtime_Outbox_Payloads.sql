@@ -0,0 +1,14 @@
+-- Migration V17: No message text in realtime_outbox
+--
+-- new-message and edit-message rows used to carry the decrypted message text as JSON, bypassing
+-- the at-rest encryption of chats. They now store only {"chatRef": <chat id>}; the relay loads and
+-- decrypts the chat when it publishes (ChatEventResolver). Rows written before this version,
+-- pending or failed, are rewritten to that form (unparseable ones are deleted). Failed rows are deleted after
+-- chat.realtime.outbox.failed-retention-hours.
+
+UPDATE realtime_outbox
+SET payload = JSON_OBJECT('chatRef', JSON_EXTRACT(payload, '$.id'))
+WHERE event IN ('new-message', 'edit-message') AND JSON_VALID(payload);
+
+DELETE FROM realtime_outbox
+WHERE event IN ('new-message', 'edit-message') AND NOT JSON_VALID(payload);
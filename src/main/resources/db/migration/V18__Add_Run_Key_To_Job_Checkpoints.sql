@@ -0,0 +1,9 @@
+-- Migration V18: What a job checkpoint was taken for
+--
+-- A stopped job resumes after its checkpoint's last_id. That is only right if the job still does
+-- the same thing: a key rotation stopped halfway towards key 2 must not resume after
+-- chat.encryption.active-key-id became 3, or rows below last_id would be left on key 2.
+-- run_key records the target of the run (the key id for rotate-encryption-key, NULL for jobs
+-- without one); a checkpoint whose run_key differs from the current one is not resumed.
+
+ALTER TABLE job_checkpoints ADD COLUMN run_key VARCHAR(64) NULL AFTER status;
@@ -0,0 +1,10 @@
+-- Migration V19: Sender index on chats_archive
+--
+-- The archived half of a user's timeline and of /api/v1/chats/sent/page reads
+--   WHERE chat_from = ? AND id < ? ORDER BY id DESC LIMIT ?   (or id > ? ... ASC)
+-- idx_archive_pair_created starts with chat_from but orders by chat_to first, so these reads
+-- had to collect every archived chat of the sender and sort them. With (chat_from, id) each read
+-- is a single index range scan that stops after the page, like idx_archive_chat_to for the
+-- received half (InnoDB appends the primary key to it).
+
+CREATE INDEX idx_archive_chat_from ON chats_archive(chat_from, id);
@@ -0,0 +1,12 @@
+-- Migration V5: Store encrypted messages as raw bytes
+--
+-- New messages are written to message_data as a binary envelope:
+--   header byte (version + key id) + 12 byte AES-GCM nonce + ciphertext and tag
+-- This avoids the ~33% Base64 overhead of the TEXT column and the decode on every read.
+--
+-- Existing rows keep their Base64 AES-CBC text in `message` and are still readable,
+-- so no table rewrite is needed. `message` becomes nullable for rows stored as bytes.
+
+ALTER TABLE chats
+    ADD COLUMN message_data BLOB NULL AFTER message,
+    MODIFY COLUMN message TEXT NULL;
@@ -0,0 +1,10 @@
+-- Migration V7: Track the encryption key of each message
+--
+-- key_id mirrors the key id in the message_data envelope header so the key rotation job
+-- can find rows that are not on the active key (and report how many are left) without
+-- decrypting anything. NULL means legacy Base64 text or an envelope written before V7;
+-- the rotation job treats both as "not rotated yet".
+
+ALTER TABLE chats ADD COLUMN key_id TINYINT NULL AFTER message_data;
+
+CREATE INDEX idx_chats_key_id ON chats(key_id);
@@ -0,0 +1,8 @@
+-- Migration V8: Composite index for paged conversation history
+--
+-- /api/v1/chats/between/page reads "latest N, then older" per direction:
+--   WHERE chat_from = ? AND chat_to = ? AND (created_at, id) < cursor ORDER BY created_at DESC, id DESC
+-- With this index each direction is a single index range scan that stops after N rows,
+-- instead of an index merge over idx_chat_from/idx_chat_to followed by a filesort.
+
+CREATE INDEX idx_chats_pair_created ON chats(chat_from, chat_to, created_at, id);
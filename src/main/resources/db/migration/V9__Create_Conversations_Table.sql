@@ -0,0 +1,28 @@
+-- Migration V9: Canonical conversation per user pair
+--
+-- A conversation is keyed by the ordered pair (user_low, user_high), so both directions of a
+-- chat share one conversation_id and history becomes a single range scan on
+-- idx_chats_conversation_created instead of an OR over (from, to) and (to, from).
+--
+-- Existing pairs are seeded here. chats.conversation_id is filled by the conversation backfill
+-- job (POST /api/v1/admin/conversation-backfill) in throttled chunks rather than in one UPDATE,
+-- so the migration does not lock the whole chats table.
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_low BIGINT NOT NULL,
+    user_high BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_conversations_pair (user_low, user_high),
+    INDEX idx_conversations_user_high (user_high),
+    CONSTRAINT fk_conversation_user_low FOREIGN KEY (user_low) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_conversation_user_high FOREIGN KEY (user_high) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO conversations (user_low, user_high)
+SELECT DISTINCT LEAST(chat_from, chat_to), GREATEST(chat_from, chat_to) FROM chats;
+
+ALTER TABLE chats ADD COLUMN conversation_id BIGINT NULL AFTER chat_to,
+    ADD CONSTRAINT fk_chat_conversation FOREIGN KEY (conversation_id) REFERENCES conversations(id) ON DELETE CASCADE;
+
+CREATE INDEX idx_chats_conversation_created ON chats(conversation_id, created_at, id);
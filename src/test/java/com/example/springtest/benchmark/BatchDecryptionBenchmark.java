@@ -0,0 +1,79 @@
+package com.example.springtest.benchmark;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.crypto.CryptoEngine;
+import com.example.springtest.service.EncryptionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the list size where parallel batch decryption starts to beat the sequential loop.
+ * Compare sequential vs parallel per batchSize; the first size where parallel wins is a good
+ * value for chat.encryption.parallel-threshold on that hardware.
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.springtest.benchmark.BatchDecryptionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchDecryptionBenchmark {
+
+    @Param({"4", "16", "32", "64", "128", "512", "2048"})
+    private int batchSize;
+
+    @Param({"120"})
+    private int messageLength;
+
+    private ForkJoinPool pool;
+    private EncryptionService sequential;
+    private EncryptionService parallel;
+    private List<String> encryptedTexts;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        sequential = newService(Integer.MAX_VALUE);
+        parallel = newService(0);
+
+        encryptedTexts = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            encryptedTexts.add(sequential.encrypt(("message " + i + " ").repeat(messageLength / 10)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        return sequential.decryptAll(encryptedTexts);
+    }
+
+    @Benchmark
+    public List<String> parallel() {
+        return parallel.decryptAll(encryptedTexts);
+    }
+
+    private EncryptionService newService(int parallelThreshold) {
+        EncryptionConfig config = new EncryptionConfig();
+        config.setParallelThreshold(parallelThreshold);
+        return new EncryptionService(new CryptoEngine(config), config, pool, pool);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchDecryptionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
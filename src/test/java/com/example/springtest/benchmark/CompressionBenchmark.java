@@ -0,0 +1,99 @@
+package com.example.springtest.benchmark;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.crypto.CryptoEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage saved and CPU cost of compress-then-encrypt per message size bucket.
+ * Each setup prints the stored envelope size with and without compression; the benchmarks give
+ * the seal/open time for both, which together pick chat.encryption.compression.threshold-bytes.
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.springtest.benchmark.CompressionBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    private static final String[] PHRASES = {
+            "Hey, how are you doing today? ", "Sounds good, see you then. ", "Can you send me the report? ",
+            "I just sent it to your email. ", "Let me check and get back to you. ", "Are we still on for lunch tomorrow? ",
+            "The meeting moved to 3 PM at the downtown office. ", "Thanks so much for your help! ",
+            "Did you see the game last night? ", "I will be there in a few minutes. "
+    };
+
+    @Param({"32", "128", "512", "2048", "8192"})
+    private int messageBytes;
+
+    private CryptoEngine plainEngine;
+    private CryptoEngine compressingEngine;
+    private byte[] message;
+    private byte[] plainEnvelope;
+    private byte[] compressedEnvelope;
+
+    @Setup
+    public void setUp() throws Exception {
+        plainEngine = new CryptoEngine(newConfig(false));
+        compressingEngine = new CryptoEngine(newConfig(true));
+        message = sampleMessage(messageBytes);
+        plainEnvelope = plainEngine.seal(message);
+        compressedEnvelope = compressingEngine.seal(message);
+
+        System.out.printf("%n[%d bytes] stored: %d -> %d bytes (%.1f%% saved)%n", messageBytes,
+                plainEnvelope.length, compressedEnvelope.length,
+                100.0 * (plainEnvelope.length - compressedEnvelope.length) / plainEnvelope.length);
+    }
+
+    @Benchmark
+    public byte[] sealPlain() throws Exception {
+        return plainEngine.seal(message);
+    }
+
+    @Benchmark
+    public byte[] sealCompressed() throws Exception {
+        return compressingEngine.seal(message);
+    }
+
+    @Benchmark
+    public byte[] openPlain() throws Exception {
+        return plainEngine.open(plainEnvelope);
+    }
+
+    @Benchmark
+    public byte[] openCompressed() throws Exception {
+        return compressingEngine.open(compressedEnvelope);
+    }
+
+    private static EncryptionConfig newConfig(boolean compress) {
+        EncryptionConfig config = new EncryptionConfig();
+        config.getCompression().setEnabled(compress);
+        config.getCompression().setThresholdBytes(0);
+        return config;
+    }
+
+    private static byte[] sampleMessage(int size) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 64);
+        while (text.length() < size) {
+            text.append(PHRASES[random.nextInt(PHRASES.length)]);
+        }
+        text.setLength(size);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompressionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
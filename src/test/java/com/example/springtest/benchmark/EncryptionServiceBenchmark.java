@@ -0,0 +1,116 @@
+package com.example.springtest.benchmark;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.crypto.CryptoEngine;
+import com.example.springtest.service.EncryptionService;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost of EncryptionService before (key derivation, Cipher and SecureRandom per call)
+ * and after (CryptoEngine with cached key and pooled instances).
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.springtest.benchmark.EncryptionServiceBenchmark
+ * Add "-prof gc" via OptionsBuilder to also compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncryptionServiceBenchmark {
+
+    @Param({"32", "256", "2048"})
+    private int messageLength;
+
+    private EncryptionService encryptionService;
+    private LegacyEncryption legacyEncryption;
+    private String plainText;
+    private String encryptedText;
+
+    @Setup
+    public void setUp() {
+        EncryptionConfig config = new EncryptionConfig();
+        encryptionService = new EncryptionService(new CryptoEngine(config), config, ForkJoinPool.commonPool(), ForkJoinPool.commonPool());
+        legacyEncryption = new LegacyEncryption(config.getSecretKey());
+        plainText = "a".repeat(messageLength);
+        encryptedText = encryptionService.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String encryptBefore() throws Exception {
+        return legacyEncryption.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String encryptAfter() {
+        return encryptionService.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decryptBefore() throws Exception {
+        return legacyEncryption.decrypt(encryptedText);
+    }
+
+    @Benchmark
+    public String decryptAfter() {
+        return encryptionService.decrypt(encryptedText);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EncryptionServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Copy of the original per-call implementation, kept only as the baseline
+     */
+    private static final class LegacyEncryption {
+
+        private final String secretKey;
+
+        LegacyEncryption(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        String encrypt(String plainText) throws Exception {
+            byte[] iv = new byte[16];
+            new SecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE, createKey(), new IvParameterSpec(iv));
+            byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+            byte[] combined = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, combined, 0, iv.length);
+            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+            return Base64.encodeBase64String(combined);
+        }
+
+        String decrypt(String encryptedText) throws Exception {
+            byte[] combined = Base64.decodeBase64(encryptedText);
+            byte[] iv = Arrays.copyOfRange(combined, 0, 16);
+            byte[] encrypted = Arrays.copyOfRange(combined, 16, combined.length);
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE, createKey(), new IvParameterSpec(iv));
+            return new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+        }
+
+        private SecretKeySpec createKey() throws Exception {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return new SecretKeySpec(sha.digest(secretKey.getBytes(StandardCharsets.UTF_8)), "AES");
+        }
+    }
+}
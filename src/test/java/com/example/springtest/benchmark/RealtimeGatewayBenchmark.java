@@ -0,0 +1,127 @@
+package com.example.springtest.benchmark;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.realtime.RealtimeEvent;
+import com.example.springtest.realtime.RealtimeGateway;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load on one node's in-process realtime gateway: connections open at once (one per user channel)
+ * and the latency from publish until the event reaches the connection's sink. Sinks are in memory,
+ * so this measures the registry, the per-connection queues and the writer threads, not the network.
+ * Setup prints the heap retained per idle connection (gateway side only; Tomcat adds its own
+ * per-socket buffers, and server.tomcat.max-connections defaults to 8192).
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.springtest.benchmark.RealtimeGatewayBenchmark
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RealtimeGatewayBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int connections;
+
+    private RealtimeGateway gateway;
+    private CountingSink[] sinks;
+    private final Map<String, Object> payload = Map.of(
+            "id", 42, "message", "Hey, how are you doing today?", "chatFromUuid", "from-uuid");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gateway = new RealtimeGateway(new RealtimeConfig(), new ObjectMapper(), new SimpleMeterRegistry());
+        long heapBefore = usedHeap();
+        sinks = new CountingSink[connections];
+        for (int i = 0; i < connections; i++) {
+            sinks[i] = new CountingSink();
+            gateway.subscribe(channel(i), sinks[i]);
+        }
+        long heapAfter = usedHeap();
+        System.out.printf("%n%d connections open, ~%d bytes of heap per connection%n",
+                gateway.connections(), (heapAfter - heapBefore) / connections);
+    }
+
+    /**
+     * Publish to one user and wait until their connection received it
+     */
+    @Benchmark
+    public int deliver() {
+        return publishAndAwait(ThreadLocalRandom.current().nextInt(connections));
+    }
+
+    /**
+     * The same from eight publishers at once (several request threads and the outbox relay)
+     */
+    @Benchmark
+    @Threads(8)
+    public int deliverConcurrently() {
+        return publishAndAwait(ThreadLocalRandom.current().nextInt(connections));
+    }
+
+    private int publishAndAwait(int user) {
+        CountingSink sink = sinks[user];
+        int before = sink.received.get();
+        sink.waiter = Thread.currentThread();
+        gateway.publish(new RealtimeEvent(channel(user), "new-message", payload));
+        int received;
+        // Park rather than spin so publishers never steal CPU from the writer threads
+        while ((received = sink.received.get()) == before) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return received;
+    }
+
+    private static String channel(int user) {
+        return "chat-user-" + user;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static final class CountingSink implements RealtimeGateway.EventSink {
+
+        private final AtomicInteger received = new AtomicInteger();
+        private volatile Thread waiter;
+
+        @Override
+        public void send(String event, String data) {
+            received.incrementAndGet();
+            Thread publisher = waiter;
+            if (publisher != null) {
+                LockSupport.unpark(publisher);
+            }
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RealtimeGatewayBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
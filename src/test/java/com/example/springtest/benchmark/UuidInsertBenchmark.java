@@ -0,0 +1,128 @@
+package com.example.springtest.benchmark;
+
+import com.example.springtest.id.UuidV7;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Insert rate into a uuid-indexed table with random (v4) vs time-ordered (v7) keys, stored as
+ * BINARY(16) or as the old VARCHAR(36). The table lives in a file-backed H2 database with a small
+ * page cache and is preloaded, so random keys have to touch index pages all over the tree while
+ * time-ordered keys keep appending to the last one (the effect is far larger on InnoDB with a
+ * buffer pool smaller than the index). generate compares the generators alone, under contention.
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.example.springtest.benchmark.UuidInsertBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int PRELOADED_ROWS = 200_000;
+
+    @Param({"RANDOM_V4", "TIME_ORDERED_V7"})
+    private String keyType;
+
+    @State(Scope.Benchmark)
+    public static class Table {
+
+        @Param({"BINARY(16)", "VARCHAR(36)"})
+        private String column;
+
+        private Path directory;
+        private Connection connection;
+        private PreparedStatement insert;
+
+        @Setup(Level.Trial)
+        public void setUp(UuidInsertBenchmark benchmark) throws Exception {
+            directory = Files.createTempDirectory("uuid-insert-benchmark");
+            connection = DriverManager.getConnection(
+                    "jdbc:h2:file:" + directory.resolve("db") + ";CACHE_SIZE=4096", "sa", "");
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE chats (id BIGINT AUTO_INCREMENT PRIMARY KEY, uuid " + column + " NOT NULL, " +
+                        "message VARCHAR(64) NOT NULL, CONSTRAINT uk_chats_uuid UNIQUE (uuid))");
+            }
+            connection.setAutoCommit(false);
+            insert = connection.prepareStatement("INSERT INTO chats (uuid, message) VALUES (?, ?)");
+            for (int i = 0; i < PRELOADED_ROWS / BATCH_SIZE; i++) {
+                insertBatch(benchmark);
+            }
+        }
+
+        void insertBatch(UuidInsertBenchmark benchmark) throws SQLException {
+            boolean binary = column.startsWith("BINARY");
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                UUID uuid = benchmark.newKey();
+                if (binary) {
+                    insert.setBytes(1, UuidV7.toBytes(uuid));
+                } else {
+                    insert.setString(1, uuid.toString());
+                }
+                insert.setString(2, "Hey, how are you doing today?");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            connection.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        path.toFile().deleteOnExit();
+                    }
+                });
+            }
+        }
+    }
+
+    UUID newKey() {
+        return "RANDOM_V4".equals(keyType) ? UUID.randomUUID() : UuidV7.next();
+    }
+
+    /**
+     * Rows per second, committed in batches of BATCH_SIZE
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insert(Table table) throws SQLException {
+        table.insertBatch(this);
+    }
+
+    /**
+     * Ids per second from four threads at once
+     */
+    @Benchmark
+    @Threads(4)
+    public UUID generate() {
+        return newKey();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UuidInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.springtest.crypto;
+
+import com.example.springtest.config.EncryptionConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Envelope format of CryptoEngine: GCM round trips per key id, authentication of the header byte,
+ * and compression on either side of chat.encryption.compression.threshold-bytes.
+ */
+class CryptoEngineTest {
+
+    private final EncryptionConfig config = new EncryptionConfig();
+    private CryptoEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        config.setKeys(Map.of(1, "first rotated secret", 2, "second rotated secret"));
+        engine = new CryptoEngine(config);
+    }
+
+    @Test
+    void envelopesRoundTripWithTheKeyIdInTheHeader() throws Exception {
+        for (int keyId = 0; keyId <= 2; keyId++) {
+            config.setActiveKeyId(keyId);
+            byte[] envelope = engine.seal(utf8("message under key " + keyId));
+
+            assertThat(MessageEnvelope.version(envelope[0])).isEqualTo(MessageEnvelope.VERSION_GCM);
+            assertThat(MessageEnvelope.keyId(envelope[0])).isEqualTo(keyId);
+            assertThat(new String(engine.open(envelope), StandardCharsets.UTF_8)).isEqualTo("message under key " + keyId);
+        }
+    }
+
+    @Test
+    void envelopesOfRetiredKeysStayReadableAfterTheActiveKeyChanges() throws Exception {
+        config.setActiveKeyId(1);
+        byte[] sealedUnderOne = engine.seal(utf8("old key"));
+        config.setActiveKeyId(2);
+
+        assertThat(new String(engine.open(sealedUnderOne), StandardCharsets.UTF_8)).isEqualTo("old key");
+    }
+
+    @Test
+    void rewrittenKeyIdFailsAuthentication() throws Exception {
+        config.setActiveKeyId(1);
+        byte[] envelope = engine.seal(utf8("hello"));
+        envelope[0] = MessageEnvelope.header(MessageEnvelope.VERSION_GCM, 2, false);
+
+        assertThatThrownBy(() -> engine.open(envelope)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void flippedCompressedFlagFailsAuthentication() throws Exception {
+        byte[] envelope = engine.seal(utf8("hello"));
+        envelope[0] ^= 0x20;
+
+        assertThatThrownBy(() -> engine.open(envelope)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void reservedBitAndUnknownVersionAreRejected() throws Exception {
+        byte[] reserved = engine.seal(utf8("hello"));
+        reserved[0] ^= 0x10;
+        byte[] version = engine.seal(utf8("hello"));
+        version[0] ^= (byte) 0xC0;
+
+        assertThatThrownBy(() -> engine.open(reserved)).hasMessageContaining("Unsupported envelope header");
+        assertThatThrownBy(() -> engine.open(version)).hasMessageContaining("Unsupported envelope header");
+    }
+
+    @Test
+    void flippedCiphertextBitFailsAuthentication() throws Exception {
+        byte[] envelope = engine.seal(utf8("hello"));
+        envelope[MessageEnvelope.HEADER_SIZE + MessageEnvelope.NONCE_SIZE] ^= 0x01;
+
+        assertThatThrownBy(() -> engine.open(envelope)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void unknownKeyIdAndTruncatedEnvelopeAreRejected() throws Exception {
+        config.setActiveKeyId(2);
+        byte[] envelope = engine.seal(utf8("hello"));
+        config.setKeys(Map.of(1, "first rotated secret"));
+
+        assertThatThrownBy(() -> engine.open(envelope)).hasMessageContaining("Unknown encryption key id: 2");
+        assertThatThrownBy(() -> engine.open(new byte[MessageEnvelope.sizeFor(0) - 1]))
+                .isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void compressesFromTheThresholdOnAndRoundTripsBothWays() throws Exception {
+        int threshold = config.getCompression().getThresholdBytes();
+        byte[] below = utf8("a".repeat(threshold - 1));
+        byte[] at = utf8("a".repeat(threshold));
+
+        byte[] plainEnvelope = engine.seal(below);
+        byte[] compressedEnvelope = engine.seal(at);
+
+        assertThat(MessageEnvelope.isCompressed(plainEnvelope[0])).isFalse();
+        assertThat(MessageEnvelope.isCompressed(compressedEnvelope[0])).isTrue();
+        assertThat(compressedEnvelope.length).isLessThan(MessageEnvelope.sizeFor(at.length));
+        assertThat(engine.open(plainEnvelope)).isEqualTo(below);
+        assertThat(engine.open(compressedEnvelope)).isEqualTo(at);
+    }
+
+    @Test
+    void incompressibleAndDisabledCompressionStoreThePlaintext() throws Exception {
+        byte[] random = new byte[4 * config.getCompression().getThresholdBytes()];
+        engine.nextBytes(random);
+        byte[] incompressible = engine.seal(random);
+        config.getCompression().setEnabled(false);
+        byte[] disabled = engine.seal(utf8("a".repeat(1000)));
+
+        assertThat(MessageEnvelope.isCompressed(incompressible[0])).isFalse();
+        assertThat(MessageEnvelope.isCompressed(disabled[0])).isFalse();
+        assertThat(engine.open(incompressible)).isEqualTo(random);
+        assertThat(engine.open(disabled)).isEqualTo(utf8("a".repeat(1000)));
+    }
+
+    @Test
+    void changedSecretIsPickedUpForItsKeyId() throws Exception {
+        byte[] envelope = engine.seal(utf8("hello"));
+        config.setSecretKey("another secret");
+
+        assertThatThrownBy(() -> engine.open(envelope)).isInstanceOf(AEADBadTagException.class);
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.springtest.datasource;
+
+import com.example.springtest.config.DataSourceRoutingConfig;
+import com.example.springtest.config.ReplicaDataSourceConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing between two embedded H2 databases standing in for the primary and the replica.
+ * Each one holds a single row naming itself, so a query tells which database served it.
+ */
+@SpringBootTest(classes = {DataSourceRoutingConfig.class, ReplicaDataSourceConfig.class, ReplicaLagGuard.class,
+        ReadWriteRoutingDataSourceTest.NodeReader.class}, properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "chat.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "chat.datasource.replica.driver-class-name=org.h2.Driver",
+        "chat.datasource.replica.primary-stickiness-ms=300"
+})
+@ImportAutoConfiguration({ConfigurationPropertiesAutoConfiguration.class, DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class, TransactionAutoConfiguration.class,
+        JdbcTemplateAutoConfiguration.class})
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private NodeReader nodeReader;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeEach
+    void setUp() {
+        nameNode(primaryDataSource, "primary");
+        nameNode(replicaDataSource, "replica");
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertThat(nodeReader.readOnly()).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionsUseThePrimary() {
+        assertThat(nodeReader.readWrite(null)).isEqualTo("primary");
+    }
+
+    @Test
+    void statementsOutsideTransactionsUseThePrimary() {
+        assertThat(nodeReader.node()).isEqualTo("primary");
+    }
+
+    @Test
+    void recentWriterReadsFromThePrimary() {
+        nodeReader.readWrite("alice");
+
+        assertThat(nodeReader.readOnly("alice")).isEqualTo("primary");
+        assertThat(nodeReader.readOnly("bob")).isEqualTo("replica");
+        assertThat(nodeReader.readOnly("bob", "alice")).isEqualTo("primary");
+    }
+
+    @Test
+    void pinEndsWithItsTransaction() {
+        nodeReader.readWrite("carol");
+
+        assertThat(nodeReader.readOnly("carol")).isEqualTo("primary");
+        assertThat(nodeReader.readOnly()).isEqualTo("replica");
+    }
+
+    @Test
+    void stickinessExpiresAfterTheWindow() throws InterruptedException {
+        nodeReader.readWrite("dave");
+        Thread.sleep(600);
+
+        assertThat(nodeReader.readOnly("dave")).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWriteDoesNotPinTheWriter() {
+        try {
+            nodeReader.failingWrite("erin");
+        } catch (IllegalStateException expected) {
+            // rolled back
+        }
+
+        assertThat(nodeReader.readOnly("erin")).isEqualTo("replica");
+    }
+
+    private static void nameNode(DataSource dataSource, String name) {
+        JdbcTemplate node = new JdbcTemplate(dataSource);
+        node.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16) NOT NULL)");
+        node.update("DELETE FROM node");
+        node.update("INSERT INTO node (name) VALUES (?)", name);
+    }
+
+    @Component
+    static class NodeReader {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final ReplicaLagGuard replicaLagGuard;
+
+        NodeReader(JdbcTemplate jdbcTemplate, ReplicaLagGuard replicaLagGuard) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.replicaLagGuard = replicaLagGuard;
+        }
+
+        @Transactional(readOnly = true)
+        public String readOnly(String... readers) {
+            replicaLagGuard.readAs(readers);
+            return node();
+        }
+
+        @Transactional
+        public String readWrite(String writer) {
+            if (writer != null) {
+                replicaLagGuard.recordWrite(writer);
+            }
+            return node();
+        }
+
+        @Transactional
+        public void failingWrite(String writer) {
+            replicaLagGuard.recordWrite(writer);
+            throw new IllegalStateException("write failed");
+        }
+
+        public String node() {
+            return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springtest.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Id layout, ordering and the local lease check of TimeOrderedIds.
+ */
+class TimeOrderedIdsTest {
+
+    private final TimeOrderedIds ids = new TimeOrderedIds();
+
+    @Test
+    void idsIncreaseAndCarryTheNodeNumber() {
+        ids.useNode(42);
+
+        long previous = 0;
+        for (int i = 0; i < 5000; i++) {
+            long id = ids.next();
+            assertThat(id).isGreaterThan(previous).isLessThan(1L << 53);
+            assertThat(id >>> 10 & (TimeOrderedIds.MAX_NODES - 1)).isEqualTo(42);
+            previous = id;
+        }
+    }
+
+    @Test
+    void refusesIdsBeforeANodeIsAssigned() {
+        assertThatThrownBy(ids::next).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void leasedNodeIsUsableUntilTheLeaseRunsOut() {
+        ids.useLeasedNode(3, System.nanoTime(), 60000);
+        assertThat(ids.next() >>> 10 & (TimeOrderedIds.MAX_NODES - 1)).isEqualTo(3);
+
+        ids.useLeasedNode(3, System.nanoTime() - TimeUnit.SECONDS.toNanos(61), 60000);
+        assertThatThrownBy(ids::next)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("node 3");
+
+        // A renewal makes the number usable again
+        ids.useLeasedNode(3, System.nanoTime(), 60000);
+        assertThat(ids.next()).isPositive();
+    }
+
+    @Test
+    void rejectsNodeNumbersOutsideSixBits() {
+        assertThatThrownBy(() -> ids.useNode(TimeOrderedIds.MAX_NODES)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ids.useLeasedNode(-1, System.nanoTime(), 60000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.springtest.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * UuidV7 layout and ordering, and the BINARY(16) form stored through UuidBinaryConverter.
+ */
+class UuidV7Test {
+
+    private final UuidBinaryConverter converter = new UuidBinaryConverter();
+
+    @Test
+    void idsAreVersion7AndStrictlyIncreasingAsStoredBytes() {
+        byte[] previous = UuidV7.toBytes(UuidV7.next());
+        // More ids than the 12-bit counter holds per millisecond
+        for (int i = 0; i < 20000; i++) {
+            UUID uuid = UuidV7.next();
+            byte[] bytes = UuidV7.toBytes(uuid);
+
+            assertThat(uuid.version()).isEqualTo(7);
+            assertThat(uuid.variant()).isEqualTo(2);
+            // BINARY(16) compares bytes unsigned, as the uuid index does
+            assertThat(Arrays.compareUnsigned(bytes, previous)).isPositive();
+            previous = bytes;
+        }
+    }
+
+    @Test
+    void timestampIsTheCreationTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.next();
+
+        assertThat(uuid.getMostSignificantBits() >>> 16).isBetween(before, System.currentTimeMillis() + 1000);
+    }
+
+    @Test
+    void converterRoundTripsTheCanonicalString() {
+        String uuid = UuidV7.nextString();
+        byte[] column = converter.convertToDatabaseColumn(uuid);
+
+        assertThat(column).hasSize(16);
+        assertThat(converter.convertToEntityAttribute(column)).isEqualTo(uuid);
+        // Same layout as MySQL UUID_TO_BIN(uuid) without the swap flag
+        assertThat(column).isEqualTo(hex(uuid.replace("-", "")));
+    }
+
+    @Test
+    void converterKeepsNullsAndReadsPreV13RandomUuids() {
+        String random = UUID.randomUUID().toString();
+
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(random))).isEqualTo(random);
+    }
+
+    @Test
+    void rejectsMalformedIds() {
+        assertThat(UuidV7.isValid(UuidV7.nextString())).isTrue();
+        assertThat(UuidV7.isValid("not-a-uuid")).isFalse();
+        assertThat(UuidV7.isValid(null)).isFalse();
+        assertThatThrownBy(() -> UuidV7.fromBytes(new byte[15])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] hex(String digits) {
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(digits.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
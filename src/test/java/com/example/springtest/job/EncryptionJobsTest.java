@@ -0,0 +1,234 @@
+package com.example.springtest.job;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.config.JobConfig;
+import com.example.springtest.crypto.CryptoEngine;
+import com.example.springtest.crypto.MessageEnvelope;
+import com.example.springtest.service.EncryptionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * MessageEncryptionJob and KeyRotationJob on H2 (MySQL mode): the is_encrypted and key_id guards
+ * against edits made while a chunk is in flight, and resuming from a checkpoint of the same run key.
+ */
+class EncryptionJobsTest {
+
+    private static final String MESSAGE_TABLE = "(id BIGINT PRIMARY KEY, message TEXT, message_data VARBINARY(4096), " +
+            "is_encrypted BOOLEAN NOT NULL, key_id TINYINT, updated_at TIMESTAMP)";
+
+    private final EncryptionConfig encryptionConfig = new EncryptionConfig();
+    private final JobConfig jobConfig = new JobConfig();
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private JobCheckpointStore checkpointStore;
+    private EncryptionService encryptionService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:jobs-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V6__Create_Job_Checkpoints_Table.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/migration/V18__Add_Run_Key_To_Job_Checkpoints.sql"));
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chats " + MESSAGE_TABLE);
+        jdbcTemplate.execute("CREATE TABLE chats_archive " + MESSAGE_TABLE);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        checkpointStore = new JobCheckpointStore(jdbcTemplate);
+
+        encryptionConfig.setKeys(Map.of(1, "first rotated secret", 2, "second rotated secret"));
+        jobConfig.setChunkSize(2);
+        jobConfig.setMaxRowsPerSecond(0);
+        encryptionService = spy(new EncryptionService(new CryptoEngine(encryptionConfig), encryptionConfig, pool, pool));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void encryptionWalksTheArchiveThenChats() throws Exception {
+        insertPlain("chats_archive", 1, 2);
+        insertPlain("chats", 3, 4, 5);
+
+        MessageEncryptionJob job = encryptionJob();
+        assertThat(job.countPendingRows()).isEqualTo(5);
+        runToCompletion(job);
+
+        assertThat(job.countPendingRows()).isZero();
+        for (long id = 1; id <= 5; id++) {
+            assertThat(decrypted(id <= 2 ? "chats_archive" : "chats", id)).isEqualTo("message " + id);
+        }
+        assertThat(job.getProgress().getProcessedRows()).isEqualTo(5);
+    }
+
+    @Test
+    void encryptionSkipsRowsEditedWhileTheChunkWasInFlight() {
+        insertPlain("chats", 1, 2);
+        byte[] edited = encryptionService.encryptToEnvelope("edited by the user");
+        // The user edit commits on another connection between the job's read and its write
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                    "UPDATE chats SET message = NULL, message_data = ?, is_encrypted = TRUE, key_id = 0 WHERE id = 2",
+                    (Object) edited)).join();
+            return invocation.callRealMethod();
+        }).when(encryptionService).encryptAllToEnvelopesForJob(anyList());
+
+        ChunkedJob.ChunkResult result = transactionTemplate.execute(tx -> encryptionJob().processChunk(0, 10));
+
+        assertThat(result.scannedRows()).isEqualTo(2);
+        assertThat(result.processedRows()).isEqualTo(1);
+        assertThat(decrypted("chats", 1)).isEqualTo("message 1");
+        assertThat(decrypted("chats", 2)).isEqualTo("edited by the user");
+    }
+
+    @Test
+    void encryptionResumesAfterTheCheckpoint() throws Exception {
+        insertPlain("chats", 1, 2, 3, 4);
+        checkpointStore.save(MessageEncryptionJob.NAME, 2, 2, ChunkedJob.Status.STOPPED.name(), null);
+
+        runToCompletion(encryptionJob());
+
+        assertThat(isEncrypted(1)).isFalse();
+        assertThat(isEncrypted(2)).isFalse();
+        assertThat(isEncrypted(3)).isTrue();
+        assertThat(isEncrypted(4)).isTrue();
+    }
+
+    @Test
+    void rotationMovesEveryFormatOntoTheActiveKey() throws Exception {
+        insertEnvelope("chats_archive", 1, "archived on key 0");
+        jdbcTemplate.update("INSERT INTO chats (id, message, is_encrypted) VALUES (2, ?, TRUE)",
+                encryptionService.encrypt("legacy base64"));
+        encryptionConfig.setActiveKeyId(1);
+        insertEnvelope("chats", 3, "on key 1");
+        encryptionConfig.setActiveKeyId(2);
+
+        KeyRotationJob job = rotationJob();
+        assertThat(job.countPendingRows()).isEqualTo(3);
+        runToCompletion(job);
+
+        assertThat(job.countPendingRows()).isZero();
+        assertThat(keyIdOfEnvelope("chats_archive", 1)).isEqualTo(2);
+        assertThat(keyIdOfEnvelope("chats", 2)).isEqualTo(2);
+        assertThat(decrypted("chats_archive", 1)).isEqualTo("archived on key 0");
+        assertThat(decrypted("chats", 2)).isEqualTo("legacy base64");
+        assertThat(decrypted("chats", 3)).isEqualTo("on key 1");
+    }
+
+    @Test
+    void rotationSkipsRowsEditedWhileTheChunkWasInFlight() {
+        insertEnvelope("chats", 1, "original 1");
+        insertEnvelope("chats", 2, "original 2");
+        encryptionConfig.setActiveKeyId(1);
+        byte[] edited = encryptionService.encryptToEnvelope("edited by the user");
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                    "UPDATE chats SET message_data = ?, key_id = 1 WHERE id = 2", (Object) edited)).join();
+            return invocation.callRealMethod();
+        }).when(encryptionService).encryptAllToEnvelopesForJob(anyList());
+
+        KeyRotationJob job = rotationJob();
+        job.onStart();
+        ChunkedJob.ChunkResult result = transactionTemplate.execute(tx -> job.processChunk(0, 10));
+
+        assertThat(result.processedRows()).isEqualTo(1);
+        assertThat(decrypted("chats", 1)).isEqualTo("original 1");
+        assertThat(decrypted("chats", 2)).isEqualTo("edited by the user");
+    }
+
+    @Test
+    void rotationResumesOnlyACheckpointForTheSameKey() throws Exception {
+        for (long id = 1; id <= 4; id++) {
+            insertEnvelope("chats", id, "message " + id);
+        }
+        encryptionConfig.setActiveKeyId(2);
+        checkpointStore.save(KeyRotationJob.NAME, 2, 2, ChunkedJob.Status.STOPPED.name(), "key-2");
+        runToCompletion(rotationJob());
+
+        assertThat(keyIdOfEnvelope("chats", 2)).isZero();
+        assertThat(keyIdOfEnvelope("chats", 3)).isEqualTo(2);
+
+        // A checkpoint left by a rotation towards key 2 is not resumed for key 1
+        encryptionConfig.setActiveKeyId(1);
+        checkpointStore.save(KeyRotationJob.NAME, 3, 1, ChunkedJob.Status.STOPPED.name(), "key-2");
+        runToCompletion(rotationJob());
+
+        for (long id = 1; id <= 4; id++) {
+            assertThat(keyIdOfEnvelope("chats", id)).isEqualTo(1);
+        }
+    }
+
+    private MessageEncryptionJob encryptionJob() {
+        return new MessageEncryptionJob(checkpointStore, transactionTemplate, jobConfig, jdbcTemplate,
+                encryptionService, encryptionConfig);
+    }
+
+    private KeyRotationJob rotationJob() {
+        return new KeyRotationJob(checkpointStore, transactionTemplate, jobConfig, jdbcTemplate,
+                encryptionService, encryptionConfig);
+    }
+
+    private void runToCompletion(ChunkedJob job) throws InterruptedException {
+        assertThat(job.start()).isTrue();
+        for (int i = 0; i < 500 && job.isRunning(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(job.getStatus()).isEqualTo(ChunkedJob.Status.COMPLETED);
+    }
+
+    private void insertPlain(String table, long... ids) {
+        for (long id : ids) {
+            jdbcTemplate.update("INSERT INTO " + table + " (id, message, is_encrypted) VALUES (?, ?, FALSE)", id, "message " + id);
+        }
+    }
+
+    private void insertEnvelope(String table, long id, String text) {
+        jdbcTemplate.update("INSERT INTO " + table + " (id, message_data, is_encrypted, key_id) VALUES (?, ?, TRUE, ?)",
+                id, encryptionService.encryptToEnvelope(text), encryptionService.activeKeyId());
+    }
+
+    private String decrypted(String table, long id) {
+        List<String> texts = jdbcTemplate.query(
+                "SELECT message, message_data, is_encrypted FROM " + table + " WHERE id = ?",
+                (rs, rowNum) -> encryptionService.decryptMessage(new StoredMessage(
+                        rs.getString("message"), rs.getBytes("message_data"), rs.getBoolean("is_encrypted"))),
+                id);
+        return texts.get(0);
+    }
+
+    private boolean isEncrypted(long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT is_encrypted FROM chats WHERE id = ?", Boolean.class, id));
+    }
+
+    private int keyIdOfEnvelope(String table, long id) {
+        byte[] envelope = jdbcTemplate.queryForObject("SELECT message_data FROM " + table + " WHERE id = ?", byte[].class, id);
+        Integer keyId = jdbcTemplate.queryForObject("SELECT key_id FROM " + table + " WHERE id = ?", Integer.class, id);
+        assertThat(keyId).isEqualTo(MessageEnvelope.keyId(envelope[0]));
+        return keyId;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.exception.RealtimeDeliveryException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Breaker state machine on a manual clock, and the breaker in front of the fake publisher.
+ */
+class CircuitBreakerTest {
+
+    private final RealtimeConfig config = new RealtimeConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        config.getBreaker().setWindowSize(4);
+        config.getBreaker().setMinimumCalls(4);
+        config.getBreaker().setFailureRateThreshold(50);
+        config.getBreaker().setOpenDurationMs(1000);
+        config.getBreaker().setHalfOpenProbes(2);
+        breaker = new CircuitBreaker("pusher", config.getBreaker(), meterRegistry, nanos::get);
+    }
+
+    @Test
+    void opensAtTheFailureRateAndFailsFast() {
+        succeed();
+        fail();
+        succeed();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail();
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.acquire()).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(meterRegistry.counter("chat.realtime.breaker.rejected", "name", "pusher").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chat.realtime.breaker.transitions", "name", "pusher", "to", "open").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.realtime.breaker.state").tags("name", "pusher", "state", "open").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenProbesCloseTheBreaker() {
+        open();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        long first = breaker.acquire();
+        long second = breaker.acquire();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.acquire()).isEqualTo(CircuitBreaker.REJECTED);
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.counter("chat.realtime.breaker.transitions", "name", "pusher", "to", "closed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() {
+        open();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        breaker.onFailure(breaker.acquire());
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.acquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void outcomesOfCallsFromBeforeATransitionAreIgnored() {
+        long slowCall = breaker.acquire();
+        open();
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        long probe = breaker.acquire();
+
+        breaker.onSuccess(slowCall);
+        breaker.onSuccess(slowCall);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onFailure(probe);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void openBreakerStopsCallingAnUnhealthyPublisher() {
+        config.getFake().setLatencyMs(0);
+        config.getFake().setErrorRate(1.0);
+        FakeRealtimePublisher fake = new FakeRealtimePublisher(config);
+        RealtimePublisher publisher = new CircuitBreakingPublisher("fake",
+                new CircuitBreaker("fake", config.getBreaker(), meterRegistry, nanos::get), fake);
+        RealtimeEvent event = RealtimeEvent.toUser("to-uuid", "new-message", Map.of("id", 1));
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> publisher.publish(event))
+                    .isInstanceOfSatisfying(RealtimeDeliveryException.class, e -> assertThat(e.isRetryable()).isTrue());
+        }
+
+        assertThat(fake.calls()).isEqualTo(4);
+    }
+
+    @Test
+    void rejectedEventsDoNotOpenTheBreaker() {
+        config.getFake().setLatencyMs(0);
+        config.getFake().setErrorRate(1.0);
+        config.getFake().setErrorRetryable(false);
+        FakeRealtimePublisher fake = new FakeRealtimePublisher(config);
+        RealtimePublisher publisher = new CircuitBreakingPublisher("fake",
+                new CircuitBreaker("fake", config.getBreaker(), meterRegistry, nanos::get), fake);
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> publisher.publish(RealtimeEvent.toUser("to-uuid", "new-message", Map.of())))
+                    .isInstanceOf(RealtimeDeliveryException.class);
+        }
+
+        assertThat(fake.calls()).isEqualTo(10);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void succeed() {
+        breaker.onSuccess(breaker.acquire());
+    }
+
+    private void fail() {
+        breaker.onFailure(breaker.acquire());
+    }
+}
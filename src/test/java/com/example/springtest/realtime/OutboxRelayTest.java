@@ -0,0 +1,164 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.exception.RealtimeDeliveryException;
+import com.example.springtest.repository.RealtimeOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outbox claim/publish/reschedule cycle on H2 (MySQL mode) with the V15 table and a mocked delivery queue.
+ */
+class OutboxRelayTest {
+
+    private final RealtimeDeliveryQueue deliveryQueue = mock(RealtimeDeliveryQueue.class);
+    private final ChatEventResolver chatEventResolver = mock(ChatEventResolver.class);
+    private final RealtimeConfig config = new RealtimeConfig();
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private RealtimeOutboxRepository outboxRepository;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection,
+                    new ClassPathResource("db/migration/V15__Create_Realtime_Outbox_Table.sql"));
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        outboxRepository = new RealtimeOutboxRepository(jdbcTemplate, new ObjectMapper());
+        relay = new OutboxRelay(outboxRepository, chatEventResolver, deliveryQueue, config, transactionTemplate,
+                new SimpleMeterRegistry());
+        relay.registerMeters();
+        when(chatEventResolver.resolve(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void publishedRowsAreDeleted() throws Exception {
+        when(deliveryQueue.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        write(ChatEvents.deleteMessage(7L, "from-uuid", "to-uuid"));
+        write(RealtimeEvent.toUser("to-uuid", "new-message", Map.of("id", 8)));
+
+        relay.drain();
+
+        verify(deliveryQueue).submit(new RealtimeEvent("chat-to-uuid", "delete-message", Map.of(
+                "id", 7, "messageId", 7, "action", "delete-message", "chatFromUuid", "from-uuid", "chatToUuid", "to-uuid")));
+        verify(deliveryQueue, times(2)).submit(any());
+        assertThat(outboxRepository.countPending()).isZero();
+    }
+
+    @Test
+    void failedRowsAreRescheduledThenMarkedFailed() throws Exception {
+        config.getOutbox().setMaxAttempts(2);
+        when(deliveryQueue.submit(any())).thenReturn(
+                CompletableFuture.failedFuture(new RealtimeDeliveryException("Pusher returned 503", true)));
+        when(deliveryQueue.backoffMs(1)).thenReturn(0L);
+        write(RealtimeEvent.toUser("to-uuid", "new-message", Map.of("id", 1)));
+
+        relay.drain();
+        assertThat(row("attempts", Integer.class)).isEqualTo(1);
+        assertThat(row("last_error", String.class)).isEqualTo("Pusher returned 503");
+        assertThat(outboxRepository.countFailed()).isZero();
+
+        relay.drain();
+        assertThat(outboxRepository.countFailed()).isEqualTo(1);
+        assertThat(outboxRepository.countPending()).isZero();
+    }
+
+    @Test
+    void rowsTurnedAwayByAFullQueueArePostponedWithoutUsingAnAttempt() throws Exception {
+        config.getOutbox().setMaxAttempts(1);
+        when(deliveryQueue.submit(any())).thenReturn(
+                CompletableFuture.failedFuture(new RejectedExecutionException("realtime queue is full")));
+        when(deliveryQueue.backoffMs(1)).thenReturn(0L);
+        write(RealtimeEvent.toUser("to-uuid", "new-message", Map.of("id", 1)));
+
+        relay.drain();
+        relay.drain();
+
+        assertThat(row("attempts", Integer.class)).isZero();
+        assertThat(outboxRepository.countFailed()).isZero();
+        assertThat(outboxRepository.countPending()).isEqualTo(1);
+        verify(deliveryQueue, times(2)).submit(any());
+    }
+
+    @Test
+    void chatReferencesArePublishedResolvedAndDroppedWhenTheChatIsGone() throws Exception {
+        when(deliveryQueue.submit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        RealtimeEvent resolved = RealtimeEvent.toUser("to-uuid", "new-message", Map.of("id", 5, "message", "hello"));
+        when(chatEventResolver.resolve(anyList())).thenReturn(Arrays.asList(resolved, null));
+        write(ChatEvents.newMessageRef(5L, "to-uuid"));
+        write(ChatEvents.editMessageRef(6L, "to-uuid"));
+
+        relay.drain();
+
+        assertThat(jdbcTemplate.queryForList("SELECT payload FROM realtime_outbox", String.class)).isEmpty();
+        verify(chatEventResolver).resolve(List.of(
+                new RealtimeEvent("chat-to-uuid", "new-message", Map.of("chatRef", 5)),
+                new RealtimeEvent("chat-to-uuid", "edit-message", Map.of("chatRef", 6))));
+        verify(deliveryQueue).submit(resolved);
+        verify(deliveryQueue, times(1)).submit(any());
+    }
+
+    @Test
+    void failedRowsArePurgedAfterTheRetention() {
+        write(RealtimeEvent.toUser("a", "new-message", Map.of()));
+        write(RealtimeEvent.toUser("b", "new-message", Map.of()));
+        jdbcTemplate.update("UPDATE realtime_outbox SET failed_at = TIMESTAMPADD(HOUR, -200, NOW(6)) WHERE channel = 'chat-a'");
+        jdbcTemplate.update("UPDATE realtime_outbox SET failed_at = NOW(6) WHERE channel = 'chat-b'");
+
+        relay.purgeFailed();
+
+        assertThat(jdbcTemplate.queryForList("SELECT channel FROM realtime_outbox", String.class)).containsExactly("chat-b");
+    }
+
+    @Test
+    void leasedRowsAreNotClaimedAgain() {
+        write(RealtimeEvent.toUser("a", "new-message", Map.of()));
+        write(RealtimeEvent.toUser("b", "new-message", Map.of()));
+
+        List<RealtimeOutboxRepository.OutboxRow> first = transactionTemplate.execute(tx -> outboxRepository.claim(1, 60000, "node-1"));
+        List<RealtimeOutboxRepository.OutboxRow> second = transactionTemplate.execute(tx -> outboxRepository.claim(10, 60000, "node-2"));
+        List<RealtimeOutboxRepository.OutboxRow> third = transactionTemplate.execute(tx -> outboxRepository.claim(10, 60000, "node-3"));
+
+        assertThat(first).extracting(row -> row.event().channel()).containsExactly("chat-a");
+        assertThat(second).extracting(row -> row.event().channel()).containsExactly("chat-b");
+        assertThat(third).isEmpty();
+    }
+
+    private void write(RealtimeEvent event) {
+        transactionTemplate.executeWithoutResult(tx -> outboxRepository.insert(event));
+    }
+
+    private <T> T row(String column, Class<T> type) {
+        return jdbcTemplate.queryForObject("SELECT " + column + " FROM realtime_outbox", type);
+    }
+}
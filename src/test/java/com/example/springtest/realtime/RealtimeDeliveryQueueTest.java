@@ -0,0 +1,199 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.example.springtest.exception.RealtimeDeliveryException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Delivery queue behaviour against a mocked RealtimePublisher: retries, overflow policies, shutdown draining
+ * and micro-batching. Tests of single-event behaviour turn batching off (batch.max-size=1).
+ */
+class RealtimeDeliveryQueueTest {
+
+    private static final RealtimeEvent EVENT = RealtimeEvent.toUser("user-1", "new-message", Map.of("id", 1));
+
+    private final RealtimePublisher publisher = mock(RealtimePublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RealtimeConfig config = new RealtimeConfig();
+    private RealtimeDeliveryQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        config.getBatch().setMaxSize(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void retriesRetryableFailuresUntilDelivered() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RealtimeDeliveryException("503", true);
+            }
+            return null;
+        }).when(publisher).publish(any());
+        start(config -> config.setRetryBaseDelayMs(5));
+
+        queue.submit(EVENT).get(5, TimeUnit.SECONDS);
+
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.counter("chat.realtime.events", "outcome", "retried").count()).isEqualTo(2);
+    }
+
+    @Test
+    void nonRetryableFailuresAreNotRetried() throws Exception {
+        doThrow(new RealtimeDeliveryException("invalid channel", false))
+                .when(publisher).publish(any());
+        start(config -> { });
+
+        assertThatThrownBy(() -> queue.submit(EVENT).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RealtimeDeliveryException.class);
+        verify(publisher, times(1)).publish(any());
+    }
+
+    @Test
+    void dropPolicyRejectsWhenFull() throws Exception {
+        CountDownLatch release = blockPusher();
+        start(config -> {
+            config.setWorkers(1);
+            config.setQueueCapacity(1);
+            config.setOverflowPolicy(RealtimeConfig.OverflowPolicy.DROP);
+        });
+
+        CompletableFuture<Void> inFlight = queue.submit(EVENT);
+        awaitQueued(0);
+        CompletableFuture<Void> queued = queue.submit(EVENT);
+        CompletableFuture<Void> rejected = queue.submit(EVENT);
+
+        assertThatThrownBy(() -> rejected.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+        CompletableFuture.allOf(inFlight, queued).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shutdownDrainsQueuedEvents() throws Exception {
+        start(config -> config.setWorkers(1));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[20];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = queue.submit(EVENT);
+        }
+
+        queue.shutdown();
+        queue = null;
+
+        assertThat(CompletableFuture.allOf(futures)).isCompleted();
+        verify(publisher, times(20)).publish(any());
+    }
+
+    @Test
+    void burstsAreSentAsBatchesOfAtMostTen() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<List<RealtimeEvent>>getArgument(0).size());
+            return null;
+        }).when(publisher).publishBatch(anyList());
+        start(config -> {
+            config.setWorkers(1);
+            config.getBatch().setMaxSize(10);
+            config.getBatch().setMaxWaitMs(500);
+        });
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[25];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = queue.submit(RealtimeEvent.toUser("user-" + i, "new-message", Map.of("id", i)));
+        }
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+        assertThat(batchSizes).containsExactly(10, 10, 5);
+        verify(publisher, never()).publish(any());
+    }
+
+    @Test
+    void rejectedBatchFailsOnlyTheInvalidEvent() throws Exception {
+        doThrow(new RealtimeDeliveryException("400 invalid channel", false)).when(publisher).publishBatch(anyList());
+        doThrow(new RealtimeDeliveryException("400 invalid channel", false))
+                .when(publisher).publish(argThat(event -> event.channel().equals("chat-bad")));
+        start(config -> {
+            config.setWorkers(1);
+            config.getBatch().setMaxSize(10);
+            config.getBatch().setMaxWaitMs(500);
+        });
+
+        CompletableFuture<Void> good = queue.submit(RealtimeEvent.toUser("good", "new-message", Map.of()));
+        CompletableFuture<Void> bad = queue.submit(RealtimeEvent.toUser("bad", "new-message", Map.of()));
+        CompletableFuture<Void> other = queue.submit(RealtimeEvent.toUser("other", "new-message", Map.of()));
+
+        CompletableFuture.allOf(good, other).get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(RealtimeDeliveryException.class);
+        verify(publisher, times(1)).publishBatch(anyList());
+    }
+
+    @Test
+    void backoffStaysWithinTheJitterWindow() throws Exception {
+        start(config -> {
+            config.setRetryBaseDelayMs(100);
+            config.setRetryMaxDelayMs(1000);
+        });
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(queue.backoffMs(1)).isBetween(0L, 100L);
+            assertThat(queue.backoffMs(3)).isBetween(0L, 400L);
+            assertThat(queue.backoffMs(10)).isBetween(0L, 1000L);
+        }
+    }
+
+    private void start(Consumer<RealtimeConfig> customizer) throws Exception {
+        customizer.accept(config);
+        queue = new RealtimeDeliveryQueue(config, publisher, meterRegistry);
+        queue.start();
+    }
+
+    private CountDownLatch blockPusher() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(publisher).publish(any());
+        return release;
+    }
+
+    private void awaitQueued(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (queue.queued() != size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.springtest.realtime;
+
+import com.example.springtest.config.RealtimeConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fan-out, ordering, slow-consumer handling and reconnect races of the in-process gateway with in-memory sinks.
+ */
+class RealtimeGatewayTest {
+
+    private final RealtimeConfig config = new RealtimeConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RealtimeGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        config.getGateway().setSendQueueCapacity(2);
+        gateway = new RealtimeGateway(config, new ObjectMapper(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.shutdown();
+    }
+
+    @Test
+    void eventsReachEveryConnectionOfTheChannelInOrder() throws Exception {
+        RecordingSink phone = new RecordingSink(2);
+        RecordingSink laptop = new RecordingSink(2);
+        RecordingSink otherUser = new RecordingSink(1);
+        gateway.subscribe("chat-a", phone);
+        gateway.subscribe("chat-a", laptop);
+        gateway.subscribe("chat-b", otherUser);
+
+        gateway.publish(RealtimeEvent.toUser("a", "new-message", Map.of("id", 1)));
+        gateway.publish(RealtimeEvent.toUser("a", "delete-message", Map.of("id", 1)));
+
+        assertThat(phone.awaitFrames()).containsExactly("new-message {\"id\":1}", "delete-message {\"id\":1}");
+        assertThat(laptop.awaitFrames()).containsExactly("new-message {\"id\":1}", "delete-message {\"id\":1}");
+        assertThat(otherUser.frames).isEmpty();
+    }
+
+    @Test
+    void slowConsumerIsDisconnectedWithoutDelayingOthers() throws Exception {
+        CountDownLatch stuck = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(1) {
+            @Override
+            public void send(String event, String data) {
+                try {
+                    stuck.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RecordingSink fast = new RecordingSink(0);
+        gateway.subscribe("chat-a", slow);
+        gateway.subscribe("chat-a", fast);
+
+        // One event stuck in send, two queued, the fourth overflows the slow connection
+        for (int i = 0; i < 4; i++) {
+            gateway.publish(RealtimeEvent.toUser("a", "new-message", Map.of("id", i)));
+            fast.awaitFrameCount(i + 1);
+        }
+
+        assertThat(slow.closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(gateway.connections()).isEqualTo(1);
+        assertThat(meterRegistry.counter("chat.realtime.gateway.slow.consumers").count()).isEqualTo(1);
+        stuck.countDown();
+    }
+
+    @Test
+    void brokenConnectionIsRemoved() throws Exception {
+        RecordingSink broken = new RecordingSink(1) {
+            @Override
+            public void send(String event, String data) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        gateway.subscribe("chat-a", broken);
+
+        gateway.publish(RealtimeEvent.toUser("a", "new-message", Map.of("id", 1)));
+
+        assertThat(broken.closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(gateway.connections()).isZero();
+    }
+
+    @Test
+    void reconnectRacingTheOldDisconnectStaysSubscribed() throws Exception {
+        // The old connection is torn down while the new one is being added to the channel's set
+        AtomicReference<RealtimeGateway.Connection> old = new AtomicReference<>();
+        Supplier<Set<RealtimeGateway.Connection>> racingSets = () -> new CopyOnWriteArraySet<>() {
+            @Override
+            public boolean add(RealtimeGateway.Connection connection) {
+                RealtimeGateway.Connection previous = old.get();
+                if (previous != null) {
+                    Thread teardown = Thread.ofPlatform().start(() -> gateway.disconnect(previous));
+                    try {
+                        teardown.join(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.add(connection);
+            }
+        };
+        gateway.shutdown();
+        gateway = new RealtimeGateway(config, new ObjectMapper(), meterRegistry, racingSets);
+
+        old.set(gateway.subscribe("chat-a", new RecordingSink(0)));
+        RecordingSink reconnected = new RecordingSink(1);
+        gateway.subscribe("chat-a", reconnected);
+        old.set(null);
+
+        gateway.publish(RealtimeEvent.toUser("a", "new-message", Map.of("id", 1)));
+
+        assertThat(reconnected.received.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(gateway.connections()).isEqualTo(1);
+    }
+
+    static class RecordingSink implements RealtimeGateway.EventSink {
+
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        final CountDownLatch received;
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        RecordingSink(int expected) {
+            received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(String event, String data) throws IOException {
+            frames.add(event + " " + data);
+            received.countDown();
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        void awaitFrameCount(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (frames.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertThat(frames).hasSize(count);
+        }
+
+        List<String> awaitFrames() throws InterruptedException {
+            assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+            return frames;
+        }
+    }
+}
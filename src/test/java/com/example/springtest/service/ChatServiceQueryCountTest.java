@@ -0,0 +1,336 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.ArchiveConfig;
+import com.example.springtest.config.ConversationConfig;
+import com.example.springtest.config.CryptoPoolConfig;
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.config.IdConfig;
+import com.example.springtest.config.PaginationConfig;
+import com.example.springtest.config.ReplicaDataSourceConfig;
+import com.example.springtest.config.SearchConfig;
+import com.example.springtest.config.UserCacheConfig;
+import com.example.springtest.crypto.BlindIndex;
+import com.example.springtest.crypto.CryptoEngine;
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ChatResponse;
+import com.example.springtest.dto.CursorPageResponse;
+import com.example.springtest.dto.UserRequest;
+import com.example.springtest.entity.Chat;
+import com.example.springtest.entity.Conversation;
+import com.example.springtest.entity.User;
+import com.example.springtest.exception.PagedEndpointRequiredException;
+import com.example.springtest.id.IdNodeLease;
+import com.example.springtest.id.TimeOrderedIds;
+import com.example.springtest.mapper.ChatMapper;
+import com.example.springtest.mapper.UserMapper;
+import com.example.springtest.realtime.RealtimeOutbox;
+import com.example.springtest.repository.ChatArchiveRepository;
+import com.example.springtest.repository.ChatPageRepository;
+import com.example.springtest.repository.ChatRepository;
+import com.example.springtest.repository.ChatSearchTokenRepository;
+import com.example.springtest.repository.ConversationRepository;
+import com.example.springtest.repository.ConversationSummaryRepository;
+import com.example.springtest.repository.IdNodeRepository;
+import com.example.springtest.repository.RealtimeOutboxRepository;
+import com.example.springtest.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Guards the number of SQL statements each chat list endpoint issues, so an N+1 regression
+ * (e.g. mapping lazy chatFrom/chatTo) fails the build. Runs on H2 in MySQL mode with the schema
+ * generated from the entities (no chats_archive, so archival is disabled).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:chat-query-count;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.flyway.enabled=false",
+        "chat.archive.enabled=false",
+        "chat.ids.node-id=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ChatService.class, UserService.class, InboxService.class, ConversationSummaryRepository.class,
+        SearchService.class, ChatSearchTokenRepository.class, BlindIndex.class, SearchConfig.class,
+        ChatMapper.class, UserMapper.class,
+        EncryptionService.class, CryptoEngine.class, EncryptionConfig.class, CryptoPoolConfig.class,
+        PaginationConfig.class, ConversationService.class, ConversationConfig.class,
+        ChatArchiveService.class, ChatArchiveRepository.class, ChatPageRepository.class, ArchiveConfig.class,
+        ReplicaLagGuard.class, ReplicaDataSourceConfig.class, UserLookupService.class, UserCacheConfig.class,
+        RealtimeOutbox.class, RealtimeOutboxRepository.class,
+        IdConfig.class, IdNodeLease.class, IdNodeRepository.class, TimeOrderedIds.class,
+        SimpleMeterRegistry.class})
+class ChatServiceQueryCountTest {
+
+    private static final int USERS = 4;
+    private static final int CHATS_PER_DIRECTION = 3;
+
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ConversationService conversationService;
+    @Autowired
+    private UserLookupService userLookupService;
+    @Autowired
+    private EncryptionService encryptionService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChatRepository chatRepository;
+    @Autowired
+    private ConversationRepository conversationRepository;
+    @Autowired
+    private PaginationConfig paginationConfig;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            users.add(userRepository.save(user));
+        }
+        for (int i = 0; i < USERS; i++) {
+            for (int j = i + 1; j < USERS; j++) {
+                Conversation conversation = new Conversation();
+                conversation.setUserLow(users.get(i));
+                conversation.setUserHigh(users.get(j));
+                Long conversationId = conversationRepository.save(conversation).getId();
+                for (int k = 0; k < CHATS_PER_DIRECTION; k++) {
+                    saveChat(users.get(i), users.get(j), conversationId, "hello " + k);
+                    saveChat(users.get(j), users.get(i), conversationId, "hi " + k);
+                }
+            }
+        }
+        entityManager.flush();
+        conversationService.refreshConversationReads();
+    }
+
+    @Test
+    void getAllChatsIssuesOneStatement() {
+        List<ChatResponse> chats = assertStatements(1, chatService::getAllChats);
+
+        assertThat(chats).hasSize(USERS * (USERS - 1) * CHATS_PER_DIRECTION);
+        assertThat(chats).allSatisfy(chat -> {
+            assertThat(chat.getChatFrom().getName()).startsWith("User ");
+            assertThat(chat.getMessage()).matches("(hello|hi) \\d");
+        });
+    }
+
+    @Test
+    void getChatsBySenderAndReceiverLoadTheUserOnce() {
+        String uuid = users.get(0).getUuid();
+
+        assertThat(assertStatements(2, () -> chatService.getChatsBySender(uuid)))
+                .hasSize((USERS - 1) * CHATS_PER_DIRECTION);
+        assertThat(assertStatements(2, () -> chatService.getChatsByReceiver(uuid)))
+                .hasSize((USERS - 1) * CHATS_PER_DIRECTION);
+    }
+
+    @Test
+    void unpagedListsPointToThePagedEndpointsOnceDisabled() {
+        String uuid = users.get(0).getUuid();
+        paginationConfig.setLegacyFullList(false);
+        try {
+            assertThatThrownBy(chatService::getAllChats)
+                    .isInstanceOfSatisfying(PagedEndpointRequiredException.class,
+                            e -> assertThat(e.getPagedEndpoint()).isEqualTo("GET /api/v1/chats/page"));
+            assertThatThrownBy(() -> chatService.getChatsBySender(uuid)).isInstanceOf(PagedEndpointRequiredException.class);
+            assertThatThrownBy(() -> chatService.getChatsByReceiver(uuid)).isInstanceOf(PagedEndpointRequiredException.class);
+            assertThatThrownBy(() -> chatService.getChatsBetweenUsers(uuid, users.get(1).getUuid()))
+                    .isInstanceOf(PagedEndpointRequiredException.class);
+            assertThatThrownBy(userService::getAllUsers).isInstanceOf(PagedEndpointRequiredException.class);
+            assertThatThrownBy(() -> userService.getUserWithChatsByUuid(uuid)).isInstanceOf(PagedEndpointRequiredException.class);
+        } finally {
+            paginationConfig.setLegacyFullList(true);
+        }
+    }
+
+    @Test
+    void getChatsBetweenUsersByUserPair() {
+        disableConversationReads();
+
+        List<ChatResponse> chats = assertStatements(3,
+                () -> chatService.getChatsBetweenUsers(users.get(0).getUuid(), users.get(1).getUuid()));
+
+        assertThat(chats).hasSize(2 * CHATS_PER_DIRECTION);
+    }
+
+    @Test
+    void getChatsBetweenUsersByConversation() {
+        assertThat(conversationService.isConversationReadsEnabled()).isTrue();
+
+        // users x2, conversation id lookup (cached afterwards), history
+        List<ChatResponse> chats = assertStatements(4,
+                () -> chatService.getChatsBetweenUsers(users.get(0).getUuid(), users.get(1).getUuid()));
+        assertThat(chats).hasSize(2 * CHATS_PER_DIRECTION);
+
+        assertStatements(3, () -> chatService.getChatsBetweenUsers(users.get(1).getUuid(), users.get(0).getUuid()));
+    }
+
+    @Test
+    void getChatPageBetweenUsers() {
+        String uuid1 = users.get(0).getUuid();
+        String uuid2 = users.get(1).getUuid();
+
+        assertThat(assertStatements(4, () -> chatService.getChatPageBetweenUsers(uuid1, uuid2, 4, null)).getItems())
+                .hasSize(4);
+
+        // Users are cached by now; the pair query returns projections, so it is the only statement
+        disableConversationReads();
+        assertThat(assertStatements(1, () -> chatService.getChatPageBetweenUsers(uuid1, uuid2, 4, null)).getItems())
+                .hasSize(4);
+    }
+
+    @Test
+    void cachedUsersAreNotQueriedAgain() {
+        String uuid1 = users.get(0).getUuid();
+        String uuid2 = users.get(1).getUuid();
+        chatService.getChatPageBetweenUsers(uuid1, uuid2, 4, null);
+
+        // Users and the conversation id come from the caches: only the page itself is read
+        assertStatements(1, () -> chatService.getChatPageBetweenUsers(uuid1, uuid2, 4, null));
+    }
+
+    @Test
+    void updatedUserIsReloadedFromTheDatabase() {
+        User user = users.get(0);
+        assertThat(userLookupService.getSummary(user.getUuid()).getName()).isEqualTo("User 0");
+
+        UserRequest rename = new UserRequest();
+        rename.setName("Renamed");
+        rename.setEmail(user.getEmail());
+        userService.updateUser(user.getId(), rename);
+
+        assertThat(userLookupService.getSummary(user.getUuid()).getName()).isEqualTo("Renamed");
+    }
+
+    @Test
+    void getTimelineReadsOnePageAtATime() {
+        String uuid = users.get(0).getUuid();
+        int total = 2 * (USERS - 1) * CHATS_PER_DIRECTION;
+
+        // user, page ids, page rows
+        CursorPageResponse<ChatResponse> first = assertStatements(3, () -> userService.getTimeline(uuid, 5, null));
+        assertThat(first.getItems()).hasSize(5);
+        assertThat(first.isHasMore()).isTrue();
+
+        List<Long> seen = new ArrayList<>(first.getItems().stream().map(ChatResponse::getId).toList());
+        String cursor = first.getNextCursor();
+        while (cursor != null) {
+            String next = cursor;
+            CursorPageResponse<ChatResponse> page = assertStatements(3, () -> userService.getTimeline(uuid, 5, next));
+            assertThat(page.getItems().get(page.getItems().size() - 1).getId()).isLessThan(seen.get(0));
+            seen.addAll(0, page.getItems().stream().map(ChatResponse::getId).toList());
+            cursor = page.getNextCursor();
+        }
+        assertThat(seen).hasSize(total).isSorted();
+    }
+
+    @Test
+    void getChatPageWalksAllChatsByKeyset() {
+        List<Long> seen = new ArrayList<>();
+        Long after = null;
+        do {
+            Long current = after;
+            CursorPageResponse<ChatResponse> page = assertStatements(1, () -> chatService.getChatPage(7, current));
+            seen.addAll(page.getItems().stream().map(ChatResponse::getId).toList());
+            after = page.getNextCursor() != null ? Long.valueOf(page.getNextCursor()) : null;
+        } while (after != null);
+
+        assertThat(seen).hasSize(USERS * (USERS - 1) * CHATS_PER_DIRECTION).isSorted().doesNotHaveDuplicates();
+        assertThat(assertStatements(2, () -> chatService.getSentChatPage(users.get(0).getUuid(), 2, null)).getItems())
+                .hasSize(2);
+    }
+
+    @Test
+    void getUserWithChatsDoesNotLoadCollections() {
+        assertThat(assertStatements(2, () -> userService.getUserWithChatsByUuid(users.get(0).getUuid())).getChats())
+                .hasSize(2 * (USERS - 1) * CHATS_PER_DIRECTION);
+    }
+
+    @Test
+    void newChatsAreInsertedInOneBatch() {
+        entityManager.clear();
+        statistics.clear();
+
+        for (int i = 0; i < 20; i++) {
+            saveChat(users.get(0), users.get(1), null, "batched " + i);
+        }
+        entityManager.flush();
+
+        // ids are assigned by the application, so the 20 inserts share one batched statement
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL statements issued")
+                .isLessThanOrEqualTo(1);
+        assertThat(chatRepository.count()).isEqualTo(USERS * (USERS - 1) * CHATS_PER_DIRECTION + 20L);
+    }
+
+    /**
+     * Run the call on an empty persistence context (as a new request would) and check the statement count
+     */
+    private <T> T assertStatements(long maxStatements, Supplier<T> call) {
+        entityManager.clear();
+        statistics.clear();
+
+        T result = call.get();
+
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL statements issued")
+                .isLessThanOrEqualTo(maxStatements);
+        return result;
+    }
+
+    /**
+     * A chat not backfilled yet switches history reads back to the user pair queries
+     */
+    private void disableConversationReads() {
+        saveChat(users.get(2), users.get(3), null, "before conversations");
+        entityManager.flush();
+        conversationService.refreshConversationReads();
+        assertThat(conversationService.isConversationReadsEnabled()).isFalse();
+    }
+
+    private void saveChat(User from, User to, Long conversationId, String message) {
+        Chat chat = new Chat();
+        chat.setChatFrom(from);
+        chat.setChatTo(to);
+        chat.setConversationId(conversationId);
+        chat.setMessageData(encryptionService.encryptToEnvelope(message));
+        chat.setKeyId(encryptionService.activeKeyId());
+        chat.setIsEncrypted(true);
+        chatRepository.save(chat);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.springtest.service;
+
+import com.example.springtest.config.EncryptionConfig;
+import com.example.springtest.crypto.CryptoEngine;
+import com.example.springtest.crypto.EncryptedMessage;
+import lombok.Value;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The three stored message formats read through EncryptionService, including a legacy row
+ * written by the commons-codec AES-CBC code that predates the envelope format.
+ */
+class EncryptionServiceTest {
+
+    // "Hello from before the envelope format" under the default secret key, IV 00 01 .. 0f
+    private static final String LEGACY_CBC =
+            "AAECAwQFBgcICQoLDA0OD9tCk/oYizP070b4tHBEEydBljhCeAk37+Xua6yPtIEFghiUvGjSbtPk048i5dSuGA==";
+
+    private final EncryptionConfig config = new EncryptionConfig();
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private final ForkJoinPool jobPool = new ForkJoinPool(1);
+    private final EncryptionService encryptionService = new EncryptionService(new CryptoEngine(config), config, pool, jobPool);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        jobPool.shutdown();
+    }
+
+    @Test
+    void legacyBase64CbcStillDecrypts() {
+        assertThat(encryptionService.decrypt(LEGACY_CBC)).isEqualTo("Hello from before the envelope format");
+        // Line-wrapped Base64 as some old writers produced it
+        String wrapped = LEGACY_CBC.substring(0, 40) + "\r\n" + LEGACY_CBC.substring(40);
+        assertThat(encryptionService.decrypt(wrapped)).isEqualTo("Hello from before the envelope format");
+    }
+
+    @Test
+    void legacyCbcRoundTrips() {
+        String encrypted = encryptionService.encrypt("still written while envelope-format=false");
+
+        assertThat(encrypted).isNotEqualTo(encryptionService.encrypt("still written while envelope-format=false"));
+        assertThat(encryptionService.decrypt(encrypted)).isEqualTo("still written while envelope-format=false");
+    }
+
+    @Test
+    void decryptMessageReadsEveryStoredFormat() {
+        byte[] envelope = encryptionService.encryptToEnvelope("envelope");
+
+        assertThat(encryptionService.decryptMessage(new Stored(null, envelope, true))).isEqualTo("envelope");
+        assertThat(encryptionService.decryptMessage(new Stored(LEGACY_CBC, null, true)))
+                .isEqualTo("Hello from before the envelope format");
+        assertThat(encryptionService.decryptMessage(new Stored("plain text", null, false))).isEqualTo("plain text");
+        // An envelope wins over a stale message column
+        assertThat(encryptionService.decryptMessage(new Stored("stale", envelope, true))).isEqualTo("envelope");
+    }
+
+    @Test
+    void wrongSecretFailsLegacyDecryption() {
+        config.setSecretKey("another secret");
+
+        assertThatThrownBy(() -> encryptionService.decrypt(LEGACY_CBC)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void parallelBatchesKeepTheInputOrder() {
+        config.setParallelThreshold(4);
+        List<String> plainTexts = IntStream.range(0, 200).mapToObj(i -> "message " + i).toList();
+
+        List<byte[]> envelopes = encryptionService.encryptAllToEnvelopes(plainTexts);
+        List<Stored> stored = new ArrayList<>();
+        for (int i = 0; i < envelopes.size(); i++) {
+            stored.add(i % 2 == 0 ? new Stored(null, envelopes.get(i), true) : new Stored(plainTexts.get(i), null, false));
+        }
+
+        assertThat(encryptionService.decryptMessages(stored)).isEqualTo(plainTexts);
+        assertThat(encryptionService.decryptAll(encryptionService.encryptAll(plainTexts))).isEqualTo(plainTexts);
+    }
+
+    @Test
+    void jobBatchesRunOnTheirOwnPool() {
+        config.setParallelThreshold(4);
+        List<String> plainTexts = IntStream.range(0, 200).mapToObj(i -> "message " + i).toList();
+        pool.shutdown();
+
+        List<byte[]> envelopes = encryptionService.encryptAllToEnvelopesForJob(plainTexts);
+        List<Stored> stored = envelopes.stream().map(envelope -> new Stored(null, envelope, true)).toList();
+
+        assertThat(encryptionService.decryptMessagesForJob(stored)).isEqualTo(plainTexts);
+        assertThat(encryptionService.encryptAllForJob(plainTexts).stream().map(encryptionService::decrypt).toList())
+                .isEqualTo(plainTexts);
+    }
+
+    @Value
+    private static class Stored implements EncryptedMessage {
+        String message;
+        byte[] messageData;
+        Boolean isEncrypted;
+    }
+}
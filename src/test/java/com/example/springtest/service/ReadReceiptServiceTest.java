@@ -0,0 +1,126 @@
+package com.example.springtest.service;
+
+import com.example.springtest.datasource.ReplicaLagGuard;
+import com.example.springtest.dto.ReadReceiptRequest;
+import com.example.springtest.dto.UserSummaryResponse;
+import com.example.springtest.realtime.RealtimeDeliveryQueue;
+import com.example.springtest.realtime.RealtimeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Coalescing of read acks between flushes, and marks kept for the next flush when a write fails.
+ */
+class ReadReceiptServiceTest {
+
+    private final UserLookupService userLookupService = mock(UserLookupService.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final RealtimeDeliveryQueue deliveryQueue = mock(RealtimeDeliveryQueue.class);
+    private final ReplicaLagGuard replicaLagGuard = mock(ReplicaLagGuard.class);
+
+    private final ReadReceiptService service = new ReadReceiptService(
+            userLookupService, jdbcTemplate, transactionTemplate, deliveryQueue, replicaLagGuard);
+
+    @BeforeEach
+    void setUp() {
+        when(userLookupService.getSummaries(anyCollection())).thenReturn(Map.of(
+                "reader", new UserSummaryResponse(1L, "reader", "Reader"),
+                "peer", new UserSummaryResponse(2L, "peer", "Peer"),
+                "other", new UserSummaryResponse(3L, "other", "Other")));
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void acksOfOneConversationCoalesceToTheHighestMark() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        service.acknowledge(ack("reader", "peer", 10));
+        service.acknowledge(ack("reader", "peer", 30));
+        service.acknowledge(ack("reader", "peer", 20));
+        service.flush();
+
+        List<Object[]> rows = flushedRows(1).get(0);
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)).containsExactly(30L, 2L, 1L, 30L, 1L, 2L, 30L, 30L);
+        verify(deliveryQueue).submit(RealtimeEvent.toUser("peer", "messages-read",
+                Map.of("receipts", List.of(Map.of("readerUuid", "reader", "lastReadChatId", 30L)))));
+    }
+
+    @Test
+    void emptyFlushTouchesNothing() {
+        service.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(deliveryQueue, never()).submit(any());
+    }
+
+    @Test
+    void marksOfAFailedFlushAreWrittenByTheNextOne() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("primary down"))
+                .thenReturn(new int[]{1, 1});
+
+        service.acknowledge(ack("reader", "peer", 30));
+        assertThatThrownBy(service::flush).isInstanceOf(DataAccessResourceFailureException.class);
+        verify(deliveryQueue, never()).submit(any());
+
+        // A lower ack meanwhile does not move the kept mark back; a new conversation joins the batch
+        service.acknowledge(ack("reader", "peer", 25));
+        service.acknowledge(ack("other", "peer", 5));
+        service.flush();
+
+        List<Object[]> retried = flushedRows(2).get(1);
+        assertThat(retried).extracting(row -> row[0]).containsExactlyInAnyOrder(30L, 5L);
+        verify(deliveryQueue).submit(any());
+
+        service.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void unchangedMarksAreNotAnnounced() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0});
+
+        service.acknowledge(ack("reader", "peer", 30));
+        service.flush();
+
+        verify(deliveryQueue, never()).submit(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Object[]>> flushedRows(int flushes) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(flushes)).batchUpdate(anyString(), rows.capture());
+        return rows.getAllValues();
+    }
+
+    private static ReadReceiptRequest ack(String reader, String peer, long lastReadChatId) {
+        ReadReceiptRequest request = new ReadReceiptRequest();
+        request.setReaderUuid(reader);
+        request.setPeerUuid(peer);
+        request.setLastReadChatId(lastReadChatId);
+        return request;
+    }
+}